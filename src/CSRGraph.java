@@ -0,0 +1,287 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/*
+ * This class represents an immutable snapshot of a graph in compressed sparse
+ * row (CSR) format. The vertex IDs are remapped to dense indices 0..V-1 and
+ * the targets of all edges outgoing from the vertex with index v are stored in
+ * targets[offsets[v]] to targets[offsets[v+1]-1] (also as dense indices).
+ * The whole graph is stored in three int arrays instead of a HashSet of boxed
+ * Integers per vertex, which takes only a fraction of the memory and allows
+ * the algorithms to use plain arrays indexed by vertex instead of hash maps.
+ */
+public class CSRGraph {
+
+	// start of the edges of each vertex in targets (length V+1)
+	private final int[] offsets;
+	// target vertex (dense index) of each edge, grouped by source vertex
+	private final int[] targets;
+	// original vertex ID of each dense index
+	private final int[] ids;
+	// dense index of each original vertex ID
+	private final VertexDictionary dictionary;
+
+	public CSRGraph(int[] offsets, int[] targets, int[] ids) {
+		// constructor initializes field variables, the arrays are not copied
+		// and must not be changed afterwards
+		this(offsets, targets, new VertexDictionary(ids));
+	}// end of constructor CSRGraph()
+
+	public CSRGraph(int[] offsets, int[] targets, VertexDictionary dictionary) {
+		// constructor initializes field variables, the dictionary gives the dense 
+		// index of each vertex and must not be changed afterwards (it can be 
+		// shared by all snapshots with the same vertices)
+		this.offsets = offsets;
+		this.targets = targets;
+		this.ids = dictionary.getIds();
+		this.dictionary = dictionary;
+	}// end of constructor CSRGraph() with dictionary
+
+	public static CSRGraph fromAdjacency(HashMap<Integer, HashSet<Integer>> adjacency) {
+		// create a CSR snapshot from adjacency lists as they are stored in Graph
+
+		// assign dense indices to all vertices, including targets that
+		// may not be keys in the adjacency map
+		VertexDictionary dense = new VertexDictionary(adjacency.size());
+		int numEdges = 0;
+		for (int v : adjacency.keySet()) {
+			dense.add(v);
+			numEdges += adjacency.get(v).size();
+		}
+		for (HashSet<Integer> edges : adjacency.values()) {
+			for (int t : edges) {
+				dense.add(t);
+			}
+		}
+		int numVerts = dense.size();
+
+		// copy each vertex's edges into its row of the targets array
+		int[] offsets = new int[numVerts+1];
+		int[] targets = new int[numEdges];
+		int pos = 0;
+		for (int v = 0; v < numVerts; v++) {
+			offsets[v] = pos;
+			HashSet<Integer> edges = adjacency.get(dense.getId(v));
+			if (edges != null) {
+				for (int t : edges) {
+					targets[pos++] = dense.get(t);
+				}
+			}
+		}
+		offsets[numVerts] = pos;
+		return new CSRGraph(offsets, targets, dense);
+	}// end of method fromAdjacency()
+
+	public static CSRGraph fromEdges(int[] from, int[] to, int numEdges) {
+		// create a CSR snapshot from an edge list of numEdges edges from[i] -> to[i]
+		// with original vertex IDs. Vertices get their dense index in the order
+		// of their first appearance and duplicate edges are dropped.
+
+		VertexDictionary dense = new VertexDictionary();
+		int[] src = new int[numEdges];
+		int[] dst = new int[numEdges];
+		for (int i = 0; i < numEdges; i++) {
+			src[i] = dense.add(from[i]);
+			dst[i] = dense.add(to[i]);
+		}
+		return fromDenseEdges(src, dst, numEdges, dense);
+	}// end of method fromEdges()
+
+	static CSRGraph fromDenseEdges(int[] src, int[] dst, int numEdges, VertexDictionary dictionary) {
+		// create a CSR snapshot from an edge list that already uses dense indices
+		// by counting sort over the source vertices
+		int numVerts = dictionary.size();
+		int[] offsets = new int[numVerts+1];
+		for (int i = 0; i < numEdges; i++) {
+			offsets[src[i]+1]++;
+		}
+		for (int v = 0; v < numVerts; v++) {
+			offsets[v+1] += offsets[v];
+		}
+		int[] next = Arrays.copyOf(offsets, numVerts);
+		int[] targets = new int[numEdges];
+		for (int i = 0; i < numEdges; i++) {
+			targets[next[src[i]]++] = dst[i];
+		}
+		return new CSRGraph(offsets, targets, dictionary).deduplicated();
+	}// end of method fromDenseEdges()
+
+	CSRGraph deduplicated() {
+		// sort each row and drop repeated targets, return this if there are none
+		int numVerts = ids.length;
+		int[] newOffsets = new int[numVerts+1];
+		int pos = 0;
+		for (int v = 0; v < numVerts; v++) {
+			int start = offsets[v];
+			int end = offsets[v+1];
+			Arrays.sort(targets, start, end);
+			newOffsets[v] = pos;
+			for (int i = start; i < end; i++) {
+				if (i == start || targets[i] != targets[i-1]) {
+					targets[pos++] = targets[i];
+				}
+			}
+		}
+		newOffsets[numVerts] = pos;
+		if (pos == targets.length) {
+			return this;
+		}
+		return new CSRGraph(newOffsets, Arrays.copyOf(targets, pos), dictionary);
+	}// end of method deduplicated()
+
+	public CSRGraph transpose() {
+		// create the CSR snapshot with all edges reversed (for each vertex
+		// the sources of its incoming edges), the dense indices stay the same
+		int numVerts = ids.length;
+		int[] src = new int[targets.length];
+		for (int v = 0; v < numVerts; v++) {
+			for (int i = offsets[v]; i < offsets[v+1]; i++) {
+				src[i] = v;
+			}
+		}
+		return fromDenseEdges(targets, src, targets.length, dictionary);
+	}// end of method transpose()
+
+	public CSRGraph undirected() {
+		// create the CSR snapshot with every edge stored both ways
+		int numVerts = ids.length;
+		int numEdges = targets.length;
+		int[] src = new int[2 * numEdges];
+		int[] dst = new int[2 * numEdges];
+		for (int v = 0; v < numVerts; v++) {
+			for (int i = offsets[v]; i < offsets[v+1]; i++) {
+				src[i] = v;
+				dst[i] = targets[i];
+				src[numEdges+i] = targets[i];
+				dst[numEdges+i] = v;
+			}
+		}
+		return fromDenseEdges(src, dst, 2 * numEdges, dictionary);
+	}// end of method undirected()
+
+	public CSRGraph subgraph(int[] members) {
+		// create the CSR snapshot of the subgraph induced by the vertices with
+		// the dense indices in members (they get the dense indices 0..members.length-1
+		// in the subgraph), each member's edges are only looked at once
+		VertexDictionary local = new VertexDictionary(members);
+		int[] subIds = new int[members.length];
+		for (int i = 0; i < members.length; i++) {
+			subIds[i] = ids[members[i]];
+		}
+		int[] subOffsets = new int[members.length+1];
+		int numEdges = 0;
+		for (int i = 0; i < members.length; i++) {
+			int v = members[i];
+			for (int e = offsets[v]; e < offsets[v+1]; e++) {
+				if (local.contains(targets[e])) {
+					numEdges++;
+				}
+			}
+			subOffsets[i+1] = numEdges;
+		}
+		int[] subTargets = new int[numEdges];
+		numEdges = 0;
+		for (int v : members) {
+			for (int e = offsets[v]; e < offsets[v+1]; e++) {
+				int t = local.get(targets[e]);
+				if (t >= 0) {
+					subTargets[numEdges++] = t;
+				}
+			}
+		}
+		return new CSRGraph(subOffsets, subTargets, subIds);
+	}// end of method subgraph()
+
+	public int[] reverseEdges() {
+		// for a symmetric graph (every edge stored both ways, as in an undirected
+		// snapshot), the position in targets of the reverse of each edge. The 
+		// positions of each row are ordered by target, then the vertices are 
+		// visited in ascending order, so the k-th time a vertex t is seen as a 
+		// target, the source is the k-th smallest target in the row of t.
+		int numVerts = ids.length;
+		int[] sorted = new int[targets.length];
+		long[] row = new long[0];
+		for (int v = 0; v < numVerts; v++) {
+			int degree = offsets[v+1] - offsets[v];
+			if (row.length < degree) {
+				row = new long[Math.max(degree, 2 * row.length)];
+			}
+			for (int i = 0; i < degree; i++) {
+				row[i] = ((long) targets[offsets[v]+i] << 32) | (offsets[v]+i);
+			}
+			Arrays.sort(row, 0, degree);
+			for (int i = 0; i < degree; i++) {
+				sorted[offsets[v]+i] = (int) row[i];
+			}
+		}
+		int[] next = Arrays.copyOf(offsets, numVerts);
+		int[] reverse = new int[targets.length];
+		for (int v = 0; v < numVerts; v++) {
+			for (int i = offsets[v]; i < offsets[v+1]; i++) {
+				int t = targets[i];
+				if (next[t] == offsets[t+1] || targets[sorted[next[t]]] != v) {
+					throw new IllegalArgumentException("The graph is not symmetric.");
+				}
+				reverse[i] = sorted[next[t]++];
+			}
+		}
+		return reverse;
+	}// end of method reverseEdges()
+
+	public HashMap<Integer, HashSet<Integer>> toAdjacency() {
+		// convert back to adjacency lists with original vertex IDs as used by Graph
+		HashMap<Integer, HashSet<Integer>> adjacency = new HashMap<Integer, HashSet<Integer>>();
+		for (int v = 0; v < ids.length; v++) {
+			HashSet<Integer> edges = new HashSet<Integer>();
+			for (int i = offsets[v]; i < offsets[v+1]; i++) {
+				edges.add(ids[targets[i]]);
+			}
+			adjacency.put(ids[v], edges);
+		}
+		return adjacency;
+	}// end of method toAdjacency()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public int getVertexCount() {
+		return ids.length;
+	}// end of method getVertexCount()
+
+	public int getEdgeCount() {
+		return offsets[ids.length];
+	}// end of method getEdgeCount()
+
+	public int getDegree(int v) {
+		// number of edges outgoing from the vertex with dense index v
+		return offsets[v+1] - offsets[v];
+	}// end of method getDegree()
+
+	public int getId(int v) {
+		// original vertex ID of dense index v
+		return ids[v];
+	}// end of method getId()
+
+	public int getIndex(int id) {
+		// dense index of original vertex ID id, or -1 if it is not in the graph
+		return dictionary.get(id);
+	}// end of method getIndex()
+
+	public int[] getOffsets() {
+		return offsets;
+	}// end of method getOffsets()
+
+	public int[] getTargets() {
+		return targets;
+	}// end of method getTargets()
+
+	public int[] getIds() {
+		return ids;
+	}// end of method getIds()
+
+	public VertexDictionary getDictionary() {
+		return dictionary;
+	}// end of method getDictionary()
+}
@@ -0,0 +1,260 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * This class is a graph that one or more threads can add edges to while other
+ * threads run the analysis at the same time. The edges are added to a Graph
+ * by one writer at a time (the adding methods are synchronized). Readers never
+ * touch that Graph: they work on the last published epoch, an immutable CSR
+ * snapshot with a number, which is replaced (not changed) by publish() through
+ * a volatile field. So a reader takes no lock and never waits for a writer,
+ * a writer never waits for a reader, and an algorithm that runs on one epoch
+ * sees the same graph from start to end, however many edges are added
+ * meanwhile.
+ * Besides adding an edge to the Graph, a writer only appends the vertices and
+ * edges that are new (the Graph removes duplicates and reports the new ones
+ * to a listener) to a list. publish() takes this list under the writer lock,
+ * which is O(1), and builds the next snapshot outside of it, by copying the
+ * rows of the last epoch and appending the new edges, so writers go on adding
+ * edges while a snapshot is built. Only one snapshot is built at a time.
+ * Visibility: publish() returns an epoch with every vertex and edge whose
+ * adding method returned before publish() was called. Without publish(), a
+ * background thread publishes the new edges every publishDelay milliseconds
+ * (setPublishDelay(), default 100), so an added edge is visible at the latest
+ * publishDelay plus the time to build one snapshot after it was added. Epoch
+ * numbers count up by one, and each epoch contains all edges of the ones
+ * before. close() publishes the last edges and stops the background thread.
+ */
+public class ConcurrentGraph implements AutoCloseable {
+
+	// the graph all edges are added to (only used by synchronized methods)
+	private Graph graph;
+	// a constant for normalization of calculated properties (default = 1)
+	private double norm;
+	// last published epoch, replaced as a whole by publish()
+	private volatile Epoch current;
+	// IDs of the vertices and edges (dense indices) added to graph since the
+	// last publish() took them (only used by synchronized methods)
+	private int[] newIds;
+	private int numNewIds;
+	private int[] newFrom;
+	private int[] newTo;
+	private int numNewEdges;
+	// held while a snapshot is built, so the epochs are built one at a time
+	private final Object publishLock;
+	// background thread that calls publish() every publishDelay milliseconds
+	private ScheduledExecutorService publisher;
+	private ScheduledFuture<?> publishing;
+
+	public ConcurrentGraph() {
+		// constructor initializes field variables
+		this(1.0);
+	}// end of constructor ConcurrentGraph()
+
+	public ConcurrentGraph(double norm) {
+		this.graph = new Graph(norm);
+		this.norm = norm;
+		this.current = new Epoch(0, graph.getCSR(true));
+		this.newIds = new int[16];
+		this.newFrom = new int[16];
+		this.newTo = new int[16];
+		this.publishLock = new Object();
+		// collect the new vertices and edges for the next epoch
+		graph.addListener(new GraphListener() {
+			@Override
+			public void vertexAdded(int index) {
+				if (numNewIds == newIds.length) {
+					newIds = Arrays.copyOf(newIds, 2 * numNewIds);
+				}
+				newIds[numNewIds++] = graph.getVertexId(index);
+			}
+
+			@Override
+			public void edgeAdded(int source, int target) {
+				if (numNewEdges == newFrom.length) {
+					newFrom = Arrays.copyOf(newFrom, 2 * numNewEdges);
+					newTo = Arrays.copyOf(newTo, 2 * numNewEdges);
+				}
+				newFrom[numNewEdges] = source;
+				newTo[numNewEdges++] = target;
+			}
+		});
+		this.publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ConcurrentGraph publisher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		setPublishDelay(100);
+	}// end of constructor ConcurrentGraph() with norm
+
+	public synchronized void setPublishDelay(long millis) {
+		// publish the new edges every millis milliseconds in the background
+		if (millis <= 0) {
+			throw new IllegalArgumentException("The publish delay must be positive.");
+		}
+		if (publisher.isShutdown()) {
+			throw new IllegalStateException("The graph has been closed.");
+		}
+		if (publishing != null) {
+			publishing.cancel(false);
+		}
+		publishing = publisher.scheduleWithFixedDelay(this::publish, millis, millis, TimeUnit.MILLISECONDS);
+	}// end of method setPublishDelay()
+
+	public synchronized void addVertex(int num) {
+		// add a new vertex (visible after the next publish)
+		graph.addVertex(num);
+	}// end of method addVertex()
+
+	public synchronized void addEdge(int from, int to) {
+		// add a new edge between vertices of the graph (visible after the
+		// next publish)
+		graph.addEdge(from, to);
+	}// end of method addEdge()
+
+	public synchronized void addEdges(int[] from, int[] to, int n) {
+		// add a batch of edges (see Graph.addEdges(), visible after the next
+		// publish)
+		graph.addEdges(from, to, n);
+	}// end of method addEdges()
+
+	public synchronized void addEdges(PrimitiveIterator.OfLong edges) {
+		// add a batch of long-packed edges (see Graph.addEdges(), visible
+		// after the next publish)
+		graph.addEdges(edges);
+	}// end of method addEdges() with packed edges
+
+	public synchronized void addListener(GraphListener listener) {
+		// tell listener about every new vertex and edge, it is called by the
+		// writing thread while no other thread can add edges
+		graph.addListener(listener);
+	}// end of method addListener()
+
+	public Epoch publish() {
+		// make everything added so far visible to the readers as a new epoch
+		// (nothing changes if nothing was added since the last one)
+		synchronized (publishLock) {
+			int[] ids;
+			int[] from;
+			int[] to;
+			int n;
+			synchronized (this) {
+				if (numNewIds == 0 && numNewEdges == 0) {
+					return current;
+				}
+				ids = Arrays.copyOf(newIds, numNewIds);
+				from = newFrom;
+				to = newTo;
+				n = numNewEdges;
+				numNewIds = 0;
+				newFrom = new int[16];
+				newTo = new int[16];
+				numNewEdges = 0;
+			}
+			current = new Epoch(current.getNumber() + 1, merge(current.getGraph(), ids, from, to, n));
+			return current;
+		}
+	}// end of method publish()
+
+	private static CSRGraph merge(CSRGraph last, int[] ids, int[] from, int[] to, int n) {
+		// the snapshot with the rows of last, the new vertices ids (with the
+		// next dense indices, like in the graph) and the new edges from[i] ->
+		// to[i] appended to the rows of their sources
+		VertexDictionary dictionary = last.getDictionary().copy();
+		for (int id : ids) {
+			dictionary.add(id);
+		}
+		int numVerts = dictionary.size();
+		int lastVerts = last.getVertexCount();
+		int[] lastOffsets = last.getOffsets();
+		int[] lastTargets = last.getTargets();
+
+		int[] offsets = new int[numVerts+1];
+		for (int v = 0; v < lastVerts; v++) {
+			offsets[v+1] = lastOffsets[v+1] - lastOffsets[v];
+		}
+		for (int i = 0; i < n; i++) {
+			offsets[from[i]+1]++;
+		}
+		for (int v = 0; v < numVerts; v++) {
+			offsets[v+1] += offsets[v];
+		}
+		int[] targets = new int[offsets[numVerts]];
+		int[] next = new int[numVerts];
+		for (int v = 0; v < numVerts; v++) {
+			int degree = v < lastVerts ? lastOffsets[v+1] - lastOffsets[v] : 0;
+			if (degree > 0) {
+				System.arraycopy(lastTargets, lastOffsets[v], targets, offsets[v], degree);
+			}
+			next[v] = offsets[v] + degree;
+		}
+		for (int i = 0; i < n; i++) {
+			targets[next[from[i]]++] = to[i];
+		}
+		return new CSRGraph(offsets, targets, dictionary);
+	}// end of method merge()
+
+	@Override
+	public void close() {
+		// stop the background thread and publish the last edges
+		publisher.shutdown();
+		publish();
+	}// end of method close()
+
+	/*
+	 * Methods for readers below, they only use the current epoch
+	 */
+
+	public Epoch getEpoch() {
+		// the last published epoch, without waiting for writers
+		return current;
+	}// end of method getEpoch()
+
+	public HashMap<Integer, Double> getInDegreeCentrality() {
+		// in-degree centrality of every vertex of the current epoch
+		return new DegreeCentrality(current.getGraph(), norm).calculateInDegreeCentrality();
+	}// end of method getInDegreeCentrality()
+
+	public HashMap<Integer, Double> getPageRank() {
+		// Page Rank scores of the current epoch
+		return new PageRank(current.getGraph(), norm).calculatePageRank();
+	}// end of method getPageRank()
+
+	public HashMap<Integer, Double> getStandardPageRank() {
+		// textbook Page Rank scores of the current epoch
+		return new SparsePageRank(current.getGraph()).calculatePageRank();
+	}// end of method getStandardPageRank()
+
+	public int getVertexCount() {
+		return current.getGraph().getVertexCount();
+	}// end of method getVertexCount()
+
+	public int getEdgeCount() {
+		return current.getGraph().getEdgeCount();
+	}// end of method getEdgeCount()
+
+	// a published state of the graph: its number (counting up from 0) and
+	// the CSR snapshot of the directed edges, which is never changed
+	public static class Epoch {
+		private final long number;
+		private final CSRGraph graph;
+
+		Epoch(long number, CSRGraph graph) {
+			this.number = number;
+			this.graph = graph;
+		}
+
+		public long getNumber() {
+			return number;
+		}
+
+		public CSRGraph getGraph() {
+			return graph;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/* This class calculates the in-degree, out-degree and total degree centrality
+ * of every vertex of a CSR snapshot. The in-degrees are counted into an int
+ * array in one pass over the edge targets, the out-degrees are the lengths of
+ * the CSR rows, and the counts are only divided by the normalization constant
+ * ((number of vertices - 1) * norm) at the end. Vertices without edges are
+ * included with a centrality of 0.0. With more than one thread, the edges are
+ * split into one part per thread, each part is counted into its own array and
+ * the arrays are added up, so the threads never write to the same counters.
+ */
+
+public class DegreeCentrality {
+
+	private CSRGraph graph;
+	// normalization constant (number of vertices - 1) * norm
+	private double normal;
+	private int threads;
+
+	public DegreeCentrality(CSRGraph graph, double norm) {
+		// constructor initializes field variables
+		this.graph = graph;
+		this.normal = (graph.getVertexCount()-1) * norm;
+		this.threads = 1;
+	}// end of constructor DegreeCentrality()
+
+	public void setThreads(int threads) {
+		// number of threads used to count the in-degrees (default 1)
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1.");
+		}
+		this.threads = threads;
+	}// end of method setThreads()
+
+	public int[] getInDegrees() {
+		// number of incoming edges of each vertex (dense index)
+		int[] targets = graph.getTargets();
+		if (threads == 1) {
+			return count(targets, 0, targets.length);
+		}
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return pool.invoke(new CountTask(0, threads));
+		}
+		finally {
+			pool.shutdown();
+		}
+	}// end of method getInDegrees()
+
+	public int[] getOutDegrees() {
+		// number of outgoing edges of each vertex (dense index)
+		int[] offsets = graph.getOffsets();
+		int[] outDegree = new int[graph.getVertexCount()];
+		for (int v = 0; v < outDegree.length; v++) {
+			outDegree[v] = offsets[v+1] - offsets[v];
+		}
+		return outDegree;
+	}// end of method getOutDegrees()
+
+	public int[] getDegrees() {
+		// number of incoming plus outgoing edges of each vertex (dense index)
+		int[] degree = getInDegrees();
+		int[] offsets = graph.getOffsets();
+		for (int v = 0; v < degree.length; v++) {
+			degree[v] += offsets[v+1] - offsets[v];
+		}
+		return degree;
+	}// end of method getDegrees()
+
+	private int[] count(int[] targets, int start, int end) {
+		// count how often each vertex is the target of the edges start to end-1
+		int[] inDegree = new int[graph.getVertexCount()];
+		for (int i = start; i < end; i++) {
+			inDegree[targets[i]]++;
+		}
+		return inDegree;
+	}// end of method count()
+
+	// task for the fork join pool, which counts the parts first to last-1 of
+	// the edges (out of threads parts) by splitting them in half until only
+	// one part is left, and adds up the counts of both halves
+	private class CountTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		private int first;
+		private int last;
+
+		CountTask(int first, int last) {
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (last - first > 1) {
+				int mid = (first + last) >>> 1;
+				CountTask left = new CountTask(first, mid);
+				left.fork();
+				int[] right = new CountTask(mid, last).compute();
+				int[] sum = left.join();
+				for (int v = 0; v < sum.length; v++) {
+					sum[v] += right[v];
+				}
+				return sum;
+			}
+			int numEdges = graph.getEdgeCount();
+			int start = (int) ((long) numEdges * first / threads);
+			int end = (int) ((long) numEdges * last / threads);
+			return count(graph.getTargets(), start, end);
+		}
+	}
+
+	public double[] normalize(int[] degree) {
+		// the centrality of each vertex (dense index) from its degree
+		double[] centrality = new double[degree.length];
+		for (int v = 0; v < degree.length; v++) {
+			centrality[v] = degree[v] / normal;
+		}
+		return centrality;
+	}// end of method normalize()
+
+	public HashMap<Integer, Double> toMap(double[] scores) {
+		// map the score of each dense index to the original vertex ID
+		HashMap<Integer, Double> map = new HashMap<Integer, Double>();
+		for (int v = 0; v < scores.length; v++) {
+			map.put(graph.getId(v), scores[v]);
+		}
+		return map;
+	}// end of method toMap()
+
+	public HashMap<Integer, Double> calculateInDegreeCentrality() {
+		return toMap(normalize(getInDegrees()));
+	}// end of method calculateInDegreeCentrality()
+
+	public HashMap<Integer, Double> calculateOutDegreeCentrality() {
+		return toMap(normalize(getOutDegrees()));
+	}// end of method calculateOutDegreeCentrality()
+
+	public HashMap<Integer, Double> calculateDegreeCentrality() {
+		return toMap(normalize(getDegrees()));
+	}// end of method calculateDegreeCentrality()
+}
@@ -0,0 +1,149 @@
+import java.util.Arrays;
+
+/*
+ * This class keeps the degree of every vertex (dense index) in a binary
+ * max-heap that is indexed by vertex, so a degree can be incremented in
+ * O(log V) (the vertex only moves up) and the k vertices with the highest
+ * degree can be listed in O(k log k) by a best-first search from the root,
+ * without looking at the other vertices. Graph uses it to keep the in-degrees
+ * up to date while edges are added.
+ */
+public class DegreeHeap {
+
+	// degree of each vertex
+	private int[] degree;
+	// vertices in heap order (every vertex has at least the degree of its
+	// children) and the position of each vertex in heap
+	private int[] heap;
+	private int[] position;
+	private int size;
+
+	public DegreeHeap(int[] degrees) {
+		// create the heap for vertices 0..degrees.length-1 with the given degrees
+		size = degrees.length;
+		degree = new int[Math.max(16, size)];
+		heap = new int[degree.length];
+		position = new int[degree.length];
+		System.arraycopy(degrees, 0, degree, 0, size);
+		for (int v = 0; v < size; v++) {
+			heap[v] = v;
+			position[v] = v;
+		}
+		// heapify bottom up
+		for (int i = size/2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}// end of constructor DegreeHeap()
+
+	public void addVertex() {
+		// add the vertex with the next dense index and degree 0, as a leaf
+		if (size == degree.length) {
+			degree = Arrays.copyOf(degree, 2 * size);
+			heap = Arrays.copyOf(heap, 2 * size);
+			position = Arrays.copyOf(position, 2 * size);
+		}
+		degree[size] = 0;
+		heap[size] = size;
+		position[size] = size;
+		size++;
+	}// end of method addVertex()
+
+	public void increment(int v) {
+		// add 1 to the degree of v and move it up to its new place
+		degree[v]++;
+		int i = position[v];
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (degree[heap[parent]] >= degree[v]) {
+				break;
+			}
+			heap[i] = heap[parent];
+			position[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = v;
+		position[v] = i;
+	}// end of method increment()
+
+	private void siftDown(int i) {
+		// move the vertex at heap position i down to its place
+		int v = heap[i];
+		while (2 * i + 1 < size) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && degree[heap[child+1]] > degree[heap[child]]) {
+				child++;
+			}
+			if (degree[heap[child]] <= degree[v]) {
+				break;
+			}
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = v;
+		position[v] = i;
+	}// end of method siftDown()
+
+	public int[] top(int k) {
+		// the (at most) k vertices with the highest degree, highest first (ties
+		// in no particular order). The candidates are heap positions in a
+		// second, small max-heap: the root first, and whenever a position is
+		// taken, its two children become candidates.
+		k = Math.min(k, size);
+		int[] result = new int[k];
+		if (k == 0) {
+			return result;
+		}
+		int[] candidates = new int[2 * k + 1];
+		int numCandidates = 0;
+		candidates[numCandidates++] = 0;
+		for (int r = 0; r < k; r++) {
+			int best = candidates[0];
+			result[r] = heap[best];
+			// replace the taken candidate by its children
+			candidates[0] = candidates[--numCandidates];
+			siftDownCandidate(candidates, numCandidates, 0);
+			for (int child = 2 * best + 1; child <= 2 * best + 2 && child < size; child++) {
+				int i = numCandidates++;
+				candidates[i] = child;
+				while (i > 0 && degree[heap[candidates[(i-1)/2]]] < degree[heap[candidates[i]]]) {
+					int parent = (i - 1) / 2;
+					int swap = candidates[parent];
+					candidates[parent] = candidates[i];
+					candidates[i] = swap;
+					i = parent;
+				}
+			}
+		}
+		return result;
+	}// end of method top()
+
+	private void siftDownCandidate(int[] candidates, int numCandidates, int i) {
+		// move candidate i down in the candidate heap
+		while (2 * i + 1 < numCandidates) {
+			int child = 2 * i + 1;
+			if (child + 1 < numCandidates && degree[heap[candidates[child+1]]] > degree[heap[candidates[child]]]) {
+				child++;
+			}
+			if (degree[heap[candidates[child]]] <= degree[heap[candidates[i]]]) {
+				return;
+			}
+			int swap = candidates[child];
+			candidates[child] = candidates[i];
+			candidates[i] = swap;
+			i = child;
+		}
+	}// end of method siftDownCandidate()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public int getDegree(int v) {
+		return degree[v];
+	}// end of method getDegree()
+
+	public int size() {
+		return size;
+	}// end of method size()
+}
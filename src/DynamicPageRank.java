@@ -0,0 +1,172 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/* This class keeps the (textbook) Page Rank scores of a Graph up to date while
+ * vertices and edges are added, without calculating them again from scratch.
+ * It listens to the graph and keeps an estimate p and a residual r for every
+ * vertex with the invariant (alpha = 1 - damp, d = out-degree)
+ *     p(w) + alpha * r(w) = alpha + damp * sum over edges x->w of p(x) / d(x)
+ * whose solution for r = 0 is N times the Page Rank vector (the score of
+ * vertices without outgoing edges is spread evenly over all vertices). A new
+ * vertex starts with p = 0 and r = 1. A new edge u->v only changes the
+ * invariant of u and v: p(u) is scaled by (d+1)/d so the old out-neighbors
+ * of u keep their share, and the difference goes into r(u) and r(v). After
+ * every change, vertices with a residual larger than eps are pushed (as in
+ * PersonalizedPageRank): alpha * r(u) moves to p(u) and damp * r(u) is spread
+ * over the residuals of the out-neighbors. So an insert only touches the
+ * vertices around it, and the normalized scores stay within about eps (sum of
+ * the absolute errors) of the exact ones.
+ */
+
+public class DynamicPageRank implements GraphListener {
+
+	private Graph graph;
+	private double eps; // push threshold
+	private double damp; // damping constant
+	// estimate, residual and out-degree of each dense index of the graph,
+	// and the sum of all estimates (for normalizing)
+	private double[] p;
+	private double[] r;
+	private int[] outDegree;
+	private int numVer;
+	private double sum;
+	// FIFO queue (ring buffer) of vertices with a residual above eps, each
+	// at most once
+	private int[] queue;
+	private int head;
+	private int count;
+	private boolean[] queued;
+	// number of pushes since the start
+	private long pushes;
+
+	public DynamicPageRank(Graph graph) {
+		// default constructor initializes field variables
+		this(graph, 1.0e-4, PageRank.DAMP);
+	}// end of constructor DynamicPageRank()
+
+	public DynamicPageRank(Graph graph, double eps, double damp) {
+		// calculate the scores of the current graph and listen to its changes
+		if (eps <= 0 || damp < 0 || damp >= 1) {
+			throw new IllegalArgumentException("eps must be positive and damp in [0, 1).");
+		}
+		this.graph = graph;
+		this.eps = eps;
+		this.damp = damp;
+		int capacity = Math.max(16, graph.getVertexCount());
+		p = new double[capacity];
+		r = new double[capacity];
+		outDegree = new int[capacity];
+		queued = new boolean[capacity];
+		queue = new int[capacity];
+		for (int v = 0; v < graph.getVertexCount(); v++) {
+			outDegree[v] = graph.getOutNeighbors(v).size();
+			addResidual(v, 1.0);
+		}
+		numVer = graph.getVertexCount();
+		push();
+		graph.addListener(this);
+	}// end of constructor DynamicPageRank() with eps and damp
+
+	public void close() {
+		// stop listening to the graph
+		graph.removeListener(this);
+	}// end of method close()
+
+	@Override
+	public void vertexAdded(int index) {
+		// a new vertex starts with p = 0 and r = 1
+		if (numVer == p.length) {
+			int capacity = 2 * numVer;
+			p = Arrays.copyOf(p, capacity);
+			r = Arrays.copyOf(r, capacity);
+			outDegree = Arrays.copyOf(outDegree, capacity);
+			queued = Arrays.copyOf(queued, capacity);
+		}
+		numVer++;
+		addResidual(index, 1.0);
+		push();
+	}// end of method vertexAdded()
+
+	@Override
+	public void edgeAdded(int source, int target) {
+		// correct the invariant of source and target for the new edge
+		double alpha = 1.0 - damp;
+		int d = outDegree[source]++;
+		double pu = p[source];
+		if (d == 0) {
+			// source had no share to give before
+			addResidual(target, damp * pu / alpha);
+		}
+		else {
+			p[source] = pu * (d + 1) / d;
+			sum += pu / d;
+			addResidual(source, -pu / (d * alpha));
+			addResidual(target, damp * pu / (d * alpha));
+		}
+		push();
+	}// end of method edgeAdded()
+
+	private void addResidual(int v, double amount) {
+		// add amount to the residual of v and remember v if it has to be pushed
+		r[v] += amount;
+		if (Math.abs(r[v]) > eps && !queued[v]) {
+			if (count == queue.length) {
+				// copy the ring buffer into an array of twice the size
+				int[] bigger = new int[2 * queue.length];
+				for (int i = 0; i < count; i++) {
+					bigger[i] = queue[(head + i) % queue.length];
+				}
+				queue = bigger;
+				head = 0;
+			}
+			queue[(head + count++) % queue.length] = v;
+			queued[v] = true;
+		}
+	}// end of method addResidual()
+
+	private void push() {
+		// push vertices until every residual is at most eps
+		double alpha = 1.0 - damp;
+		while (count > 0) {
+			int u = queue[head];
+			head = (head + 1) % queue.length;
+			count--;
+			queued[u] = false;
+			double ru = r[u];
+			if (Math.abs(ru) <= eps) {
+				continue;
+			}
+			pushes++;
+			p[u] += alpha * ru;
+			sum += alpha * ru;
+			r[u] = 0.0;
+			if (outDegree[u] > 0) {
+				double share = damp * ru / outDegree[u];
+				graph.getOutNeighbors(u).forEach(w -> addResidual(w, share));
+			}
+		}
+	}// end of method push()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public double getRank(int id) {
+		// current score of vertex id (the scores of all vertices sum up to 1)
+		return p[graph.getDenseIndex(id)] / sum;
+	}// end of method getRank()
+
+	public HashMap<Integer, Double> getPageRank() {
+		// current scores of all vertices
+		HashMap<Integer, Double> scores = new HashMap<Integer, Double>();
+		for (int v = 0; v < numVer; v++) {
+			scores.put(graph.getVertexId(v), p[v] / sum);
+		}
+		return scores;
+	}// end of method getPageRank()
+
+	public long getPushes() {
+		// number of pushes since the start
+		return pushes;
+	}// end of method getPushes()
+}
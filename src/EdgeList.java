@@ -0,0 +1,70 @@
+import java.util.Arrays;
+
+/*
+ * This class represents a growable list of directed edges stored in two
+ * primitive int arrays (source and target vertex ID of each edge), used to
+ * collect edges while loading a graph without creating an object per edge.
+ */
+public class EdgeList {
+
+	// source and target vertex of each edge, valid up to size
+	private int[] from;
+	private int[] to;
+	private int size;
+
+	public EdgeList() {
+		this(1024);
+	}// end of constructor EdgeList()
+
+	public EdgeList(int capacity) {
+		// constructor initializes field variables
+		from = new int[Math.max(capacity, 16)];
+		to = new int[from.length];
+		size = 0;
+	}// end of constructor EdgeList() with capacity
+
+	public void add(int source, int target) {
+		// append the edge source -> target, growing the arrays if needed
+		if (size == from.length) {
+			from = Arrays.copyOf(from, 2 * size);
+			to = Arrays.copyOf(to, 2 * size);
+		}
+		from[size] = source;
+		to[size] = target;
+		size++;
+	}// end of method add()
+
+	public void addAll(EdgeList other) {
+		// append all edges of other
+		if (size + other.size > from.length) {
+			from = Arrays.copyOf(from, Math.max(size + other.size, 2 * size));
+			to = Arrays.copyOf(to, from.length);
+		}
+		System.arraycopy(other.from, 0, from, size, other.size);
+		System.arraycopy(other.to, 0, to, size, other.size);
+		size += other.size;
+	}// end of method addAll()
+
+	public CSRGraph toCSR() {
+		// create a CSR snapshot of the edges (duplicates are dropped)
+		return CSRGraph.fromEdges(from, to, size);
+	}// end of method toCSR()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public int size() {
+		return size;
+	}// end of method size()
+
+	public int[] getFrom() {
+		// the source vertices, only the first size() entries are edges
+		return from;
+	}// end of method getFrom()
+
+	public int[] getTo() {
+		// the target vertices, only the first size() entries are edges
+		return to;
+	}// end of method getTo()
+}
@@ -1,12 +1,17 @@
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.Queue;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 
@@ -28,6 +33,24 @@ public class GirvanNewman {
 	private PriorityQueue<double[]> queueEBC;
 	//number of edges to remove per iteration
 	int e;
+	// calculate the EBC with the Brandes algorithm instead of enumerating
+	// all shortest paths between all vertex pairs (default false)
+	private boolean brandes;
+	// CSR snapshot of the edges used by the Brandes algorithm
+	private CSRGraph csr;
+	// number of threads used by the Brandes algorithm (default 1)
+	private int threads;
+	
+	// in incremental mode, the same object is used for all iterations and
+	// keeps the EBC of every edge in the CSR snapshot (index of the edge in 
+	// its targets array) and which edges have been removed. After removing
+	// a bridge, the EBCs are updated from its two end vertices, after removing
+	// other edges only for the sources whose shortest paths went through the
+	// removed edges, or recalculated for the connected components the removed
+	// edges belonged to, whichever is less work.
+	private boolean incremental;
+	private double[] edgeEBC;
+	private boolean[] removed;
 	
 	public GirvanNewman(HashMap<Integer, HashSet<Integer>> edges) {
 		// constructor initializes field variables
@@ -36,8 +59,42 @@ public class GirvanNewman {
 		this.EBCs = new HashMap<Integer, HashMap<Integer,Double>>();
 		this.queueEBC = new PriorityQueue<double[]>(new EBCComparator());
 		this.e = 1;
+		this.brandes = false;
+		this.threads = 1;
+		this.incremental = false;
 	}// end of constructor GirvanNewman()
+	
+	public GirvanNewman(HashMap<Integer, HashSet<Integer>> edges, boolean brandes) {
+		// this constructor allows to choose the Brandes algorithm for the EBC
+		this(edges);
+		this.brandes = brandes;
+	}// end of constructor GirvanNewman() with parameter brandes
+	
+	public GirvanNewman(CSRGraph csr) {
+		// this constructor runs the Brandes algorithm directly on a CSR snapshot
+		// of the (undirected) edges
+		this(null, true);
+		this.csr = csr;
+	}// end of constructor GirvanNewman() with CSR graph
 
+	public void setThreads(int threads) {
+		// set the number of threads for the Brandes algorithm
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1.");
+		}
+		this.threads = threads;
+	}// end of method setThreads()
+	
+	public void setIncremental(boolean incremental) {
+		// set the incremental mode, in which the object is reused for all 
+		// iterations and the EBCs are only recalculated for the connected 
+		// components the removed edges belonged to (uses the Brandes algorithm)
+		this.incremental = incremental;
+		if (incremental) {
+			this.brandes = true;
+		}
+	}// end of method setIncremental()
+	
 	public HashMap<Integer, HashSet<Integer>> removeEdge(int e){
 		this.e = e;
 		return removeEdge();
@@ -45,21 +102,34 @@ public class GirvanNewman {
 	
 	public HashMap<Integer, HashSet<Integer>> removeEdge(){
 		
+		// the adjacency lists are only needed here if the object was created
+		// from a CSR snapshot
+		if (edges == null) {
+			edges = csr.toAdjacency();
+		}
 		// updated edges to be returned after removal of highest EBC edge 
 		HashMap<Integer, HashSet<Integer>> newEdges = new HashMap<Integer, HashSet<Integer>>(edges);
 		
 		// calculate EBC
-		edgeBetweennessCentrality();
+		if (incremental) {
+			incrementalEdgeBetweennessCentrality();
+		}
+		else if (brandes) {
+			brandesEdgeBetweennessCentrality();
+		}
+		else {
+			edgeBetweennessCentrality();
+		}
 		
 		// find the e highest EBC edges by adding them all to a priority queue
-		HashSet<Integer> checked = new HashSet<Integer>();
+		IntSet checked = new IntSet(EBCs.size());
 		// loop through all source vertices 
 		for(int source : EBCs.keySet()) {	
 			// add current vertex to checked set
 			checked.add(source);
-			// loop over all possible target vertices
-			for(int target : EBCs.keySet()) {
-				if(EBCs.get(source).keySet().contains(target)&!checked.contains(target)) {
+			// loop over the target vertices of the edges of source
+			for(int target : EBCs.get(source).keySet()) {
+				if(!checked.contains(target)) {
 					// add each EBC values and edge source and target to an array and then
 					// to a priority queue
 					double[] ebcEdge = new double[3];
@@ -71,6 +141,9 @@ public class GirvanNewman {
 			}
 		}
 		
+		// end vertices (dense indices) of the removed edges in incremental mode
+		int[] removedPairs = new int[2*e];
+		
 		// delete e edges with highest EBC value
 		for(int i = 0; i<e;i++) {
 			// get the next highest ebc edge in the queue
@@ -78,11 +151,24 @@ public class GirvanNewman {
 			double ebc = edge[0];
 			int edgeSource = (int) edge[1];
 			int edgeTarget = (int) edge[2];
-			// remove the edge both ways
+			// remove the edge both ways (from copies of the edge sets, so the
+			// edges passed to the constructor are not changed)
+			newEdges.put(edgeSource, new HashSet<Integer>(newEdges.get(edgeSource)));
+			newEdges.put(edgeTarget, new HashSet<Integer>(newEdges.get(edgeTarget)));
 			newEdges.get(edgeSource).remove(edgeTarget);
 			newEdges.get(edgeTarget).remove(edgeSource);
+			if (incremental) {
+				removedPairs[2*i] = csr.getIndex(edgeSource);
+				removedPairs[2*i+1] = csr.getIndex(edgeTarget);
+			}
 			System.out.println("Edge removed "+" "+edgeSource+" "+edgeTarget+" "+ebc);
 		}
+		if (incremental) {
+			// update the EBCs for the next iteration, which continues with
+			// the new edges
+			updateEBCs(removedPairs);
+			edges = newEdges;
+		}
 		return newEdges;
 	}
 	
@@ -149,6 +235,426 @@ public class GirvanNewman {
 		}
 	}// end of method edgeBetweennessCentrality()
 	
+	public void brandesEdgeBetweennessCentrality() {
+		// calculate the edge betweenness centrality for all edges with the 
+		// Brandes algorithm. Instead of finding every shortest path between 
+		// every pair of vertices, it runs one BFS per source vertex that counts 
+		// the number of shortest paths to all other vertices and then 
+		// accumulates the dependencies of the source on each edge backwards, 
+		// starting from the vertices farthest away. No path is ever stored 
+		// and the whole calculation runs in O(V*E) on the CSR snapshot of 
+		// the edges, using arrays indexed by the dense vertex index.
+		// The sources are independent of each other, so with more than one 
+		// thread each thread takes the next sources from a shared counter and 
+		// accumulates the EBCs in its own array, and the arrays are summed up 
+		// when all sources are done.
+		
+		if (csr == null) {
+			csr = CSRGraph.fromAdjacency(edges);
+		}
+		// accumulated EBC of every edge (index of the edge in targets),
+		// for the edge from a vertex to its parent on the shortest paths
+		double[] ebc = new double[csr.getEdgeCount()];
+		accumulateBrandes(null, 0, 1.0, ebc);
+		putEBCs(ebc);
+	}// end of method brandesEdgeBetweennessCentrality()
+	
+	public List<double[]> getTopEdges(int k) {
+		// the k edges with the highest EBC as {EBC, source, target}, highest
+		// first, from the Brandes algorithm (or the current values in 
+		// incremental mode). The EBCs of each edge in both directions are 
+		// added up in one pass over the edge array with a bounded heap, 
+		// without putting all EBCs in the map.
+		double[] ebc = edgeEBC;
+		if (ebc == null) {
+			if (csr == null) {
+				csr = CSRGraph.fromAdjacency(edges);
+			}
+			ebc = new double[csr.getEdgeCount()];
+			accumulateBrandes(null, 0, 1.0, ebc);
+		}
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		int[] reverse = csr.reverseEdges();
+		// (each undirected edge is in the CSR snapshot twice)
+		TopK top = new TopK(Math.min(k, csr.getEdgeCount() / 2));
+		for (int v = 0; v < csr.getVertexCount(); v++) {
+			for (int i = offsets[v]; i < offsets[v+1]; i++) {
+				if (targets[i] > v && !removed[i]) {
+					top.offer(i, (ebc[i] + ebc[reverse[i]]) / 2.0);
+				}
+			}
+		}
+		
+		// find the source of each edge with a binary search in offsets
+		List<double[]> topEdges = new ArrayList<double[]>();
+		int[] topIndices = top.getIndices();
+		double[] topScores = top.getScores();
+		for (int j = 0; j < topIndices.length; j++) {
+			int source = Arrays.binarySearch(offsets, topIndices[j]);
+			if (source < 0) {
+				source = -source - 2;
+			}
+			while (offsets[source+1] == topIndices[j]) {
+				source++;
+			}
+			topEdges.add(new double[] {topScores[j], csr.getId(source), csr.getId(targets[topIndices[j]])});
+		}
+		return topEdges;
+	}// end of method getTopEdges()
+	
+	private void incrementalEdgeBetweennessCentrality() {
+		// calculate the edge betweenness centrality with the Brandes algorithm
+		// in the first iteration, afterwards the EBCs have already been updated
+		// by updateEBCs() when the edges were removed
+		
+		if (edgeEBC == null) {
+			if (csr == null) {
+				csr = CSRGraph.fromAdjacency(edges);
+			}
+			edgeEBC = new double[csr.getEdgeCount()];
+			removed = new boolean[csr.getEdgeCount()];
+			accumulateBrandes(null, 0, 1.0, edgeEBC);
+		}
+		
+		// EBCs and queue are filled again from the current values
+		EBCs.clear();
+		queueEBC.clear();
+		putEBCs(edgeEBC);
+	}// end of method incrementalEdgeBetweennessCentrality()
+	
+	private void updateEBCs(int[] removedPairs) {
+		// update the EBCs after removing the edges between removedPairs[2*i] 
+		// and removedPairs[2*i+1]. The edges are first removed one by one as 
+		// long as they are bridges, which GN mostly removes: a bridge (u, v) 
+		// splits its component into the part A of u and the part B of v, the
+		// shortest paths within A and B stay the same, and every shortest path
+		// from a in A to b in B goes from a to u, over the bridge and from v
+		// to b. So the EBC of every edge in A drops by 2 * |B| times the 
+		// dependency of u on it (both directions of each pair), and in B by 
+		// 2 * |A| times the one of v, which takes two runs instead of one run 
+		// per vertex of the component.
+		// For the other edges, only sources in the same connected component 
+		// have shortest paths through an edge, and of these only the sources s
+		// with dist(s, u) != dist(u, v) for a removed edge (u, v) have the edge
+		// on their shortest paths, for all other sources nothing changes.
+		// Either the old dependencies of these affected sources are subtracted 
+		// and the new ones (without the removed edges) added, which takes two 
+		// runs per affected source, or the EBCs of the whole components are 
+		// recalculated, which takes one run per vertex in the components.
+		
+		int numVerts = csr.getVertexCount();
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		
+		// distances from both end vertices of an edge
+		int[] distSource = new int[numVerts];
+		int[] distTarget = new int[numVerts];
+		
+		// remove the bridges, keep the other edges in removedPairs
+		int numPairs = 0;
+		for(int r = 0; r < removedPairs.length; r += 2) {
+			int u = removedPairs[r];
+			int v = removedPairs[r+1];
+			int[] pair = {u, v};
+			markRemoved(pair);
+			distances(u, distSource, null, 0);
+			if (distSource[v] >= 0) {
+				// not a bridge, put the edge back and remove it below
+				unmarkRemoved(pair);
+				removedPairs[numPairs++] = u;
+				removedPairs[numPairs++] = v;
+				continue;
+			}
+			distances(v, distTarget, null, 0);
+			int sizeA = 0;
+			int sizeB = 0;
+			for(int w = 0; w < numVerts; w++) {
+				if (distSource[w] >= 0) {
+					sizeA++;
+				}
+				if (distTarget[w] >= 0) {
+					sizeB++;
+				}
+			}
+			System.out.println("Updating EBCs of bridge with parts of "+sizeA+" and "+sizeB+" vertices");
+			accumulateBrandes(new int[] {u}, 1, -2.0*sizeB, edgeEBC);
+			accumulateBrandes(new int[] {v}, 1, -2.0*sizeA, edgeEBC);
+		}
+		if (numPairs == 0) {
+			return;
+		}
+		removedPairs = Arrays.copyOf(removedPairs, numPairs);
+		
+		// vertices in the components of the removed edges, and the affected ones 
+		boolean[] inComponent = new boolean[numVerts];
+		int[] component = new int[numVerts];
+		int componentSize = 0;
+		boolean[] affected = new boolean[numVerts];
+		int numAffected = 0;
+		
+		for(int r = 0; r < removedPairs.length; r += 2) {
+			// the components are disjoint, so a component is only appended if 
+			// it was not found from an earlier edge
+			int first = componentSize;
+			boolean known = inComponent[removedPairs[r]];
+			componentSize = distances(removedPairs[r], distSource, known ? null : component, componentSize);
+			distances(removedPairs[r+1], distTarget, null, 0);
+			for(int j = first; j < componentSize; j++) {
+				inComponent[component[j]] = true;
+			}
+			for(int v = 0; v < numVerts; v++) {
+				if (distSource[v] != distTarget[v] && !affected[v]) {
+					affected[v] = true;
+					numAffected++;
+				}
+			}
+		}
+		
+		if (2*numAffected < componentSize) {
+			// subtract the old and add the new dependencies of the affected sources
+			int[] sources = new int[numAffected];
+			int numSources = 0;
+			for(int v = 0; v < numVerts; v++) {
+				if (affected[v]) {
+					sources[numSources++] = v;
+				}
+			}
+			System.out.println("Updating EBCs from "+numSources+" sources");
+			accumulateBrandes(sources, numSources, -1.0, edgeEBC);
+			markRemoved(removedPairs);
+			accumulateBrandes(sources, numSources, 1.0, edgeEBC);
+		}
+		else {
+			// reset the EBCs of the edges in the components and recalculate them
+			// from all their vertices (in ascending order, like for the whole graph)
+			markRemoved(removedPairs);
+			for(int j = 0; j < componentSize; j++) {
+				int v = component[j];
+				Arrays.fill(edgeEBC, offsets[v], offsets[v+1], 0.0);
+			}
+			Arrays.sort(component, 0, componentSize);
+			System.out.println("Recalculating EBCs from "+componentSize+" sources");
+			accumulateBrandes(component, componentSize, 1.0, edgeEBC);
+		}
+	}// end of method updateEBCs()
+	
+	private int distances(int start, int[] dist, int[] reached, int numReached) {
+		// BFS over the remaining edges, sets the distance of every vertex from 
+		// start in dist (-1 if not reached), appends the reached vertices to 
+		// reached (if not null) after the first numReached and returns the new 
+		// number of reached vertices
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		int[] queue = new int[dist.length];
+		int head = 0;
+		int tail = 0;
+		Arrays.fill(dist, -1);
+		dist[start] = 0;
+		queue[tail++] = start;
+		while (head < tail) {
+			int curr = queue[head++];
+			if (reached != null) {
+				reached[numReached++] = curr;
+			}
+			for(int i = offsets[curr]; i < offsets[curr+1]; i++) {
+				int next = targets[i];
+				if (!removed[i] && dist[next] < 0) {
+					dist[next] = dist[curr]+1;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return numReached;
+	}// end of method distances()
+	
+	private void markRemoved(int[] removedPairs) {
+		// mark the edges between the vertices in removedPairs as removed (both ways)
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		for(int r = 0; r < removedPairs.length; r++) {
+			int source = removedPairs[r];
+			int target = removedPairs[r % 2 == 0 ? r+1 : r-1];
+			for(int i = offsets[source]; i < offsets[source+1]; i++) {
+				if (targets[i] == target && !removed[i]) {
+					removed[i] = true;
+					edgeEBC[i] = 0.0;
+					break;
+				}
+			}
+		}
+	}// end of method markRemoved()
+	
+	private void unmarkRemoved(int[] removedPairs) {
+		// undo markRemoved() for edges whose EBCs were not changed yet (the 
+		// EBC of a removed edge is 0 and stays 0 until it is recalculated)
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		for(int r = 0; r < removedPairs.length; r++) {
+			int source = removedPairs[r];
+			int target = removedPairs[r % 2 == 0 ? r+1 : r-1];
+			for(int i = offsets[source]; i < offsets[source+1]; i++) {
+				if (targets[i] == target && removed[i]) {
+					removed[i] = false;
+					break;
+				}
+			}
+		}
+	}// end of method unmarkRemoved()
+	
+	private void accumulateBrandes(int[] sources, int numSources, double sign, double[] ebc) {
+		// add the dependencies of the given source vertices (dense indices, all 
+		// vertices if sources is null) on every edge, multiplied by sign, to ebc
+		
+		if (removed == null) {
+			removed = new boolean[csr.getEdgeCount()];
+		}
+		int numTargets = ebc.length;
+		// next source vertex to be taken by a thread
+		AtomicInteger nextSource = new AtomicInteger(0);
+		
+		if (threads == 1) {
+			brandesFromSources(sources, numSources, sign, nextSource, ebc);
+		}
+		else {
+			// one task and one EBC array per thread
+			List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>();
+			for(int t = 0; t < threads; t++) {
+				tasks.add(() -> {
+					double[] threadEBC = new double[numTargets];
+					brandesFromSources(sources, numSources, sign, nextSource, threadEBC);
+					return threadEBC;
+				});
+			}
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				for(Future<double[]> result : pool.invokeAll(tasks)) {
+					double[] threadEBC = result.get();
+					for(int i = 0; i < ebc.length; i++) {
+						ebc[i] += threadEBC[i];
+					}
+				}
+			}
+			catch (InterruptedException | ExecutionException ex) {
+				throw new IllegalStateException("Edge betweenness calculation failed.", ex);
+			}
+			finally {
+				pool.shutdown();
+			}
+		}
+	}// end of method accumulateBrandes()
+	
+	private void putEBCs(double[] ebc) {
+		int numVerts = csr.getVertexCount();
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		
+		// put the EBCs of the remaining edges in the map with the original 
+		// vertex IDs, every vertex pair is counted once from each of its ends, 
+		// so only half of it is added to keep the values of 
+		// edgeBetweennessCentrality()
+		for(int v = 0; v < numVerts; v++) {
+			for(int i = offsets[v]; i < offsets[v+1]; i++) {
+				if (targets[i] != v && !removed[i]) {
+					addEBC(csr.getId(v), csr.getId(targets[i]), ebc[i]/2.0);
+				}
+			}
+		}
+	}// end of method putEBCs()
+	
+	private void brandesFromSources(int[] sources, int numSources, double sign, AtomicInteger nextSource, double[] ebc) {
+		// run the BFS and dependency accumulation of the Brandes algorithm for
+		// the sources taken from nextSource (in batches, positions in sources or
+		// all vertices if sources is null) until all sources are done and add 
+		// the results multiplied by sign to ebc, removed edges are skipped
+		int numVerts = csr.getVertexCount();
+		int count = sources == null ? numVerts : numSources;
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		
+		// vertices in the order they were reached by the BFS (non-decreasing
+		// distance from the source), also used as the BFS queue
+		int[] order = new int[numVerts];
+		// distance of every vertex from the source (-1 if not reached)
+		int[] dist = new int[numVerts];
+		// number of shortest paths from the source to every vertex
+		double[] sigma = new double[numVerts];
+		// dependency of the source on every vertex
+		double[] delta = new double[numVerts];
+		Arrays.fill(dist, -1);
+		
+		int batch = 16;
+		for(int first = nextSource.getAndAdd(batch); first < count; first = nextSource.getAndAdd(batch)) {
+			for(int pos = first; pos < Math.min(first+batch, count); pos++) {
+				int source = sources == null ? pos : sources[pos];
+				int head = 0;
+				int tail = 0;
+				order[tail++] = source;
+				dist[source] = 0;
+				sigma[source] = 1.0;
+				
+				while (head < tail) {
+					int curr = order[head++];
+					for(int i = offsets[curr]; i < offsets[curr+1]; i++) {
+						if (removed[i]) {
+							continue;
+						}
+						int next = targets[i];
+						// first visit of next, it is one level deeper than curr
+						if (dist[next] < 0) {
+							dist[next] = dist[curr]+1;
+							order[tail++] = next;
+						}
+						// curr lies on shortest paths to next, so all of its 
+						// shortest paths are extended to next
+						if (dist[next] == dist[curr]+1) {
+							sigma[next] += sigma[curr];
+						}
+					}
+				}
+				
+				// go backwards through the vertices, so that each vertex has 
+				// received all dependencies from its children before it passes 
+				// them on to its parents (the neighbors one level closer to source)
+				for(int j = tail-1; j > 0; j--) {
+					int child = order[j];
+					for(int i = offsets[child]; i < offsets[child+1]; i++) {
+						int parent = targets[i];
+						if (!removed[i] && dist[parent] == dist[child]-1) {
+							// fraction of shortest paths through the edge (parent, child) 
+							// for the child itself and all vertices behind it 
+							double c = sigma[parent]/sigma[child]*(1.0+delta[child]);
+							ebc[i] += sign*c;
+							delta[parent] += c;
+						}
+					}
+				}
+				
+				// reset the arrays for the vertices reached from this source
+				for(int j = 0; j < tail; j++) {
+					int v = order[j];
+					dist[v] = -1;
+					sigma[v] = 0.0;
+					delta[v] = 0.0;
+				}
+			}
+		}
+	}// end of method brandesFromSources()
+	
+	private void addEBC(int edgeSource, int edgeTarget, double value) {
+		// add value to the EBC of an edge (both ways) and put the edge in
+		// the EBCs map if it is not there yet
+		if(!EBCs.containsKey(edgeSource)){
+			EBCs.put(edgeSource, new HashMap<Integer,Double>());
+		}
+		if(!EBCs.containsKey(edgeTarget)){
+			EBCs.put(edgeTarget, new HashMap<Integer,Double>());
+		}
+		double curr = EBCs.get(edgeSource).containsKey(edgeTarget) ? EBCs.get(edgeSource).get(edgeTarget) : 0.0;
+		EBCs.get(edgeSource).put(edgeTarget, curr+value);
+		EBCs.get(edgeTarget).put(edgeSource, curr+value);
+	}// end of method addEBC()
+	
 	public List<List<Integer>> shortestPaths() {
 		// this method finds all shortest paths (if there are any) 
 		// for all vertex combinations in an undirected graph 
@@ -162,7 +668,7 @@ public class GirvanNewman {
 		
 		// keep vertices from which a search was already performed to not 
 		// go through both directions as we are assuming an undirected graph 
-		HashSet<Integer> checked = new HashSet<Integer>();
+		IntSet checked = new IntSet(numVerts);
 		// loop through all source vertices 
 		for(int source : edges.keySet()) {
 			// print the progress (for testing)
@@ -197,21 +703,27 @@ public class GirvanNewman {
 		// can be added for each vertex and several shortest paths 
 		// (if present) can be reconstructed.
 		
-		// hash map that holds every visited vertex as key and the level 
+		// primitive map that holds every visited vertex as key and the level 
 		// (path length of visit) as value
-		HashMap<Integer, Integer> visited = new HashMap<Integer, Integer>();
-		Queue<Integer> toExplore = new LinkedList<Integer>();
-		HashMap<Integer, HashSet<Integer>> parentMap = new HashMap<Integer, HashSet<Integer>>();
+		IntIntMap visited = new IntIntMap();
+		// queue of vertices to explore, every vertex is added at most once
+		int[] toExplore = new int[edges.size()];
+		int head = 0;
+		int tail = 0;
+		// the parents of each visited vertex are in the set at its parent index
+		IntIntMap parentIndex = new IntIntMap();
+		List<IntSet> parentSets = new ArrayList<IntSet>();
 		
-		toExplore.add(source);
+		toExplore[tail++] = source;
 		// source node has path length 0
 		visited.put(source,0);
 		boolean found = false;
 		
 		// loop while there are still nodes in the queue
-		while (!toExplore.isEmpty()) {
+		while (head < tail) {
 			// take first node from queue
-			int curr = toExplore.remove();
+			int curr = toExplore[head++];
+			int level = visited.getOrDefault(curr, -1);
 			
 			// if target found
 			if (curr == target) {
@@ -223,20 +735,22 @@ public class GirvanNewman {
 			HashSet<Integer> neighbors = edges.get(curr);
 			for(int next : neighbors) {
 			    // if next has not yet been visited	
-				if (!visited.containsKey(next)) {
+				int nextLevel = visited.getOrDefault(next, -1);
+				if (nextLevel < 0) {
 					// put it in visited and set its path lenth one more 
 					// than that of curr
-					visited.put(next,visited.get(curr)+1);
+					visited.put(next,level+1);
 					// add it to the queue and parent map
-					toExplore.add(next);
-					parentMap.put(next, new HashSet<Integer>());
-					parentMap.get(next).add(curr);
+					toExplore[tail++] = next;
+					parentIndex.put(next, parentSets.size());
+					parentSets.add(new IntSet());
+					parentSets.get(parentSets.size()-1).add(curr);
 				}
-				else if (visited.get(curr) == visited.get(next)-1 ) {
+				else if (level == nextLevel-1 ) {
 					// if it has been visited already and the path length of curr
 					// is in the same level as next's parent's path length,
 					// add curr as next's parent but do not enqueue next again
-					parentMap.get(next).add(curr);
+					parentSets.get(parentIndex.getOrDefault(next, -1)).add(curr);
 				}
 			}	
 		}
@@ -247,14 +761,14 @@ public class GirvanNewman {
 			return new ArrayList<List<Integer>>();
 		}
 		// reconstruct paths from the parent map
-		List<List<Integer>> paths = reconstructPaths(source, target, parentMap);
+		List<List<Integer>> paths = reconstructPaths(source, target, parentIndex, parentSets);
 		// set the count in numSP of how many shortest paths exist from source to target
 		numSP.get(source).put(target, paths.size());
 		
 		return paths;
 	}// end of method bfs()
 	
-	private List<List<Integer>> reconstructPaths(int source, int target,HashMap<Integer, HashSet<Integer>> parentMap){
+	private List<List<Integer>> reconstructPaths(int source, int target, IntIntMap parentIndex, List<IntSet> parentSets){
 		// the list of shortest paths to be returned
 		List<List<Integer>> paths = new LinkedList<List<Integer>>();
 		
@@ -290,7 +804,7 @@ public class GirvanNewman {
 			}
 			
 			// if the current vertex is not the source, get its parents
-			HashSet<Integer> parents = parentMap.get(currVert);
+			int[] parents = parentSets.get(parentIndex.getOrDefault(currVert, -1)).toArray();
 			// push each of its parents on the stack
 			int pcount = 0;
 			for (int p : parents) {
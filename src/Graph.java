@@ -1,26 +1,54 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
 
 /*
  * This class represents a graph data structure for a directed social network (e.g. Twitter)
  * with integer nodes and no attributes for vertices (except integer ID) and edges.
- * Edges are stored in adjacency lists (implemented as HashMap<VertexID, HashSet<EdgeTargetID>>)
+ * Each vertex gets a dense index in the order the vertices are added (VertexDictionary)
+ * and edges are stored in adjacency lists of dense indices (implemented as 
+ * ArrayList<IntSet> with the list index as source and the targets in a primitive int set).
+ * The vertex IDs are only used at the methods' boundaries.
  */
 public class Graph {
 	
-	// store the nodes and their edges in hash maps in both 
-	// a directed and undirected version
-	private HashMap<Integer, HashSet<Integer>> vertices;
-	private HashMap<Integer, HashSet<Integer>> undirected;
+	// dense index of each vertex ID, and the edges of each dense index 
+	// (as dense indices) in both a directed and undirected version
+	private VertexDictionary dictionary;
+	private ArrayList<IntSet> vertices;
+	private ArrayList<IntSet> undirected;
 	// a constant for normalization of calculated properties (default = 1)
 	private double norm;
+	// compressed sparse row (CSR) snapshots of the directed and undirected 
+	// version, created on demand and discarded whenever the graph changes
+	private CSRGraph csr;
+	private CSRGraph undirCSR;
+	// number of directed and undirected edges, and (only if degree tracking
+	// is switched on) the in-degree of each dense index in an indexed heap
+	private int numEdges;
+	private int numUndirEdges;
+	private DegreeHeap inDegrees;
+	// listeners that are told about every new vertex and edge
+	private ArrayList<GraphListener> listeners;
+	// CSR snapshot the graph was loaded from, as long as the edge sets have
+	// not been built from it (see materialize())
+	private CSRGraph loaded;
 	
 	public Graph() {
 		// constructor initializes field variable
-		vertices = new HashMap<Integer, HashSet<Integer>>();
-		undirected = new HashMap<Integer, HashSet<Integer>>();
+		dictionary = new VertexDictionary();
+		vertices = new ArrayList<IntSet>();
+		undirected = new ArrayList<IntSet>();
+		listeners = new ArrayList<GraphListener>();
 		norm = 1.0;
 	}// end of constructor Graph()
 	
@@ -31,113 +59,427 @@ public class Graph {
 	
 	public void addVertex(int num) {
 		// add a new vertex to the graph
+		addDenseVertex(num);
+	}// end of method addVertex()
+	
+	private int addDenseVertex(int num) {
+		// add a new vertex to the graph and return its dense index
 		
-		// If the vertex is already in the graph, exit method,
-		if (vertices.keySet().contains(num)) {
-			return;
+		// If the vertex is already in the graph, return its index,
+		int v = dictionary.get(num);
+		if (v >= 0) {
+			return v;
 		}
-		// else create a new vertex for the location and put it in the hash map
+		// else give it the next dense index and create its (empty) edge sets
 		else {
-			vertices.put(num, new HashSet<Integer>());
-			undirected.put(num, new HashSet<Integer>());
+			materialize();
+			v = dictionary.add(num);
+			vertices.add(new IntSet());
+			undirected.add(new IntSet());
+			if (inDegrees != null) {
+				inDegrees.addVertex();
+			}
+			csr = null;
+			undirCSR = null;
+			for (GraphListener listener : listeners) {
+				listener.vertexAdded(v);
+			}
+			return v;
 		}
 		
-	}// end of method addVertex()
+	}// end of method addDenseVertex()
 	
 	public void addEdge(int from, int to) throws IllegalArgumentException{
 		// add a new edge to the graph
 		
 		// check if both source and target vertices are in the graph, if not throw exception
-		if (!vertices.containsKey(from) || !vertices.containsKey(to)) {
+		int source = dictionary.get(from);
+		int target = dictionary.get(to);
+		if (source < 0 || target < 0) {
 			throw new IllegalArgumentException("At least one of the vertices is not in the graph.");
 		}
-		// get the source vertex from vertices and add a new edge to the target vertex
-		vertices.get(from).add(to);
-		// for the undirected representation, add the edge both ways
-		undirected.get(from).add(to);
-		undirected.get(to).add(from);
+		addDenseEdge(source, target);
 		
 	}// end of method addEdge()
 	
+	public void addEdges(int[] from, int[] to, int n) {
+		// add the edges from[i] -> to[i] for i < n in one batch. Vertices that 
+		// are not in the graph yet are created (in the order they appear), 
+		// duplicate edges are removed by sorting and the edges of each source
+		// are then added to its edge set at once. An empty graph (without 
+		// listeners) gets the rows of a CSR snapshot built by counting sort
+		// instead, and keeps them like a loaded snapshot (see addSnapshot()).
+		if (n < 0 || n > from.length || n > to.length) {
+			throw new IllegalArgumentException("There are fewer than n edges in the arrays.");
+		}
+		if (n == 0) {
+			return;
+		}
+		if (dictionary.size() == 0 && listeners.isEmpty()) {
+			addSnapshot(new GraphSnapshot(CSRGraph.fromEdges(from, to, n), null));
+			return;
+		}
+		long[] pairs = new long[n];
+		for (int i = 0; i < n; i++) {
+			int source = addDenseVertex(from[i]);
+			int target = addDenseVertex(to[i]);
+			pairs[i] = (long) source << 32 | target;
+		}
+		commitEdges(pairs, n);
+	}// end of method addEdges()
+	
+	public void addEdges(PrimitiveIterator.OfLong edges) {
+		// add a batch of edges, each packed into a long as 
+		// (from << 32) | (to & 0xffffffffL), like addEdges() with arrays
+		int[] from = new int[16];
+		int[] to = new int[16];
+		int n = 0;
+		while (edges.hasNext()) {
+			long edge = edges.nextLong();
+			if (n == from.length) {
+				from = Arrays.copyOf(from, 2 * n);
+				to = Arrays.copyOf(to, 2 * n);
+			}
+			from[n] = (int) (edge >>> 32);
+			to[n++] = (int) edge;
+		}
+		addEdges(from, to, n);
+	}// end of method addEdges() with packed edges
+	
+	private void commitEdges(long[] pairs, int n) {
+		// add the edges (source << 32 | target, dense indices) pairs[0..n-1], 
+		// sorted so that each source's edges come in one run without 
+		// duplicates, which is added to the source's edge sets at once. Only
+		// the edges that were new are counted and added to the edge sets of 
+		// their targets (undirected) one by one. With listeners, each edge of 
+		// a run is added on its own (and reported right away), since a 
+		// listener like DynamicPageRank reads the edge sets and must find 
+		// exactly the edges it was told about.
+		materialize();
+		Arrays.sort(pairs, 0, n);
+		int[] run = new int[16];
+		int i = 0;
+		while (i < n) {
+			int source = (int) (pairs[i] >>> 32);
+			int length = 0;
+			int end = i;
+			while (end < n && (int) (pairs[end] >>> 32) == source) {
+				if (end == i || pairs[end] != pairs[end-1]) {
+					if (length == run.length) {
+						run = Arrays.copyOf(run, 2 * length);
+					}
+					run[length++] = (int) pairs[end];
+				}
+				end++;
+			}
+			i = end;
+			if (!listeners.isEmpty()) {
+				for (int j = 0; j < length; j++) {
+					addDenseEdge(source, run[j]);
+				}
+				continue;
+			}
+			// afterwards the new targets come first in run
+			int added = vertices.get(source).addAll(run, 0, length);
+			if (added == 0) {
+				continue;
+			}
+			numEdges += added;
+			csr = null;
+			undirCSR = null;
+			// for the undirected representation, add the edges both ways
+			numUndirEdges += undirected.get(source).addAll(Arrays.copyOf(run, added), 0, added);
+			for (int j = 0; j < added; j++) {
+				int target = run[j];
+				if (undirected.get(target).add(source)) {
+					numUndirEdges++;
+				}
+				if (inDegrees != null) {
+					inDegrees.increment(target);
+				}
+			}
+		}
+	}// end of method commitEdges()
+	
+	private void addDenseEdge(int source, int target) {
+		// add the edge between two dense indices and update the counters
+		materialize();
+		
+		// get the source vertex from vertices and add a new edge to the target vertex,
+		// nothing changes if the edge is already in the graph
+		if (!vertices.get(source).add(target)) {
+			return;
+		}
+		numEdges++;
+		// for the undirected representation, add the edge both ways
+		if (undirected.get(source).add(target)) {
+			numUndirEdges++;
+		}
+		if (undirected.get(target).add(source)) {
+			numUndirEdges++;
+		}
+		if (inDegrees != null) {
+			inDegrees.increment(target);
+		}
+		csr = null;
+		undirCSR = null;
+		for (GraphListener listener : listeners) {
+			listener.edgeAdded(source, target);
+		}
+	}// end of method addDenseEdge()
+	
+	public void addListener(GraphListener listener) {
+		// tell listener about every vertex and edge added from now on
+		listeners.add(listener);
+	}// end of method addListener()
+	
+	public void removeListener(GraphListener listener) {
+		listeners.remove(listener);
+	}// end of method removeListener()
+	
+	public void setDegreeTracking(boolean track) {
+		// switch on (or off) keeping the in-degree of each vertex up to date 
+		// while edges are added, which makes getInDegree() O(1) and 
+		// getTopInDegree() O(k log k), at the cost of O(log V) per new edge
+		if (!track) {
+			inDegrees = null;
+		}
+		else if (inDegrees == null) {
+			inDegrees = new DegreeHeap(new DegreeCentrality(getCSR(true),norm).getInDegrees());
+		}
+	}// end of method setDegreeTracking()
+	
+	public boolean isDegreeTracking() {
+		return inDegrees != null;
+	}// end of method isDegreeTracking()
+	
+	public int getInDegree(int num) {
+		// number of edges to vertex num, without degree tracking every 
+		// vertex's edge set is checked for num (O(V))
+		int v = getDenseIndex(num);
+		if (inDegrees != null) {
+			return inDegrees.getDegree(v);
+		}
+		materialize();
+		int count = 0;
+		for (IntSet edges : vertices) {
+			if (edges.contains(v)) {
+				count++;
+			}
+		}
+		return count;
+	}// end of method getInDegree()
+	
+	public int getOutDegree(int num) {
+		// number of edges from vertex num
+		if (loaded != null) {
+			return loaded.getDegree(getDenseIndex(num));
+		}
+		return vertices.get(getDenseIndex(num)).size();
+	}// end of method getOutDegree()
+	
+	public List<Integer> getTopInDegree(int k) {
+		// the (at most) k vertices with the most incoming edges, the highest 
+		// in-degree first. Without degree tracking, the in-degrees are 
+		// counted for this query first (O(V + E)).
+		List<Integer> top = new ArrayList<Integer>();
+		for (int v : getTopInDegrees(k).getIndices()) {
+			top.add(dictionary.getId(v));
+		}
+		return top;
+	}// end of method getTopInDegree()
+	
+	private TopK getTopInDegrees(int k) {
+		// the k vertices (dense index) with the most incoming edges and their
+		// in-degrees, from the live heap with degree tracking (O(k log k)), 
+		// otherwise from one count of all in-degrees (O(V log k))
+		TopK top = new TopK(Math.min(k, getVertexCount()));
+		if (inDegrees != null) {
+			for (int v : inDegrees.top(k)) {
+				top.offer(v, inDegrees.getDegree(v));
+			}
+		}
+		else {
+			int[] counts = new DegreeCentrality(getCSR(true),norm).getInDegrees();
+			for (int v = 0; v < counts.length; v++) {
+				top.offer(v, counts[v]);
+			}
+		}
+		return top;
+	}// end of method getTopInDegrees()
+	
+	int getIndex(int num) {
+		// dense index of vertex num, or -1 if it is not in the graph
+		return dictionary.get(num);
+	}// end of method getIndex()
+	
+	int getDenseIndex(int num) {
+		// dense index of vertex num, which has to be in the graph
+		int v = dictionary.get(num);
+		if (v < 0) {
+			throw new IllegalArgumentException("The vertex is not in the graph.");
+		}
+		return v;
+	}// end of method getDenseIndex()
+	
 	/*
 	 * Getter methods below
 	 */
 	
 	public HashMap<Integer, Double> getInDegreeCentrality(){
 	    // caluclate the in-degree centraity of each vertex 
-		// (normalized with respect to number of vertices in the graph)	
+		// (normalized with respect to number of vertices in the graph),
+		// vertices without incoming edges have a centrality of 0.0
+		return new DegreeCentrality(getCSR(true),norm).calculateInDegreeCentrality();
+	}// end of method getInDegreeCentrality()
 	
-		// store the value of each vertex in hash map
-		HashMap<Integer, Double> inDegreeCentrality = new HashMap<Integer, Double>();
-		// normalization constant is made smaller because it would otherwise 
-		// make the in-degree centrality too small
-		double normal = (getVertexCount()-1)* norm;
-		
-		// loop through all vertices
-		for(HashSet<Integer> edges : vertices.values()) {
-			// and through their edges' target vertices to get each incoming edge 
-			for(int vertex : edges) {
-				// if the target vertex has not occurred yet put it in the hash map and add 1 (normalized)
-				if(!inDegreeCentrality.containsKey(vertex)) {
-					inDegreeCentrality.put(vertex, 1.0/normal);
-				}
-				// if the target vertex is already in the map, take its current
-				// value and add another 1 (normalized) to it
-				else {
-					double curr = inDegreeCentrality.get(vertex); 
-					inDegreeCentrality.put(vertex, curr + 1.0/normal);
-				}
-			}
-		}
-		return inDegreeCentrality;
+	public HashMap<Integer, Double> getInDegreeCentrality(int threads){
+		// same as getInDegreeCentrality(), the edges are counted with several threads
+		DegreeCentrality degreeCentrality = new DegreeCentrality(getCSR(true),norm);
+		degreeCentrality.setThreads(threads);
+		return degreeCentrality.calculateInDegreeCentrality();
 	}// end of method getInDegreeCentrality()
 	
+	public HashMap<Integer, Double> getOutDegreeCentrality(){
+		// caluclate the out-degree centraity of each vertex (normalized like 
+		// the in-degree centrality)
+		return new DegreeCentrality(getCSR(true),norm).calculateOutDegreeCentrality();
+	}// end of method getOutDegreeCentrality()
+	
+	public HashMap<Integer, Double> getDegreeCentrality(){
+		// caluclate the degree centraity (incoming plus outgoing edges) of 
+		// each vertex (normalized like the in-degree centrality)
+		return new DegreeCentrality(getCSR(true),norm).calculateDegreeCentrality();
+	}// end of method getDegreeCentrality()
+	
 	public HashMap<Integer, Double> getPageRank(){
-		return new PageRank(this.vertices,norm).calculatePageRank();
+		// by default the scores are calculated on the CSR snapshot
+		return getPageRank(true);
 	}
 	
+	public HashMap<Integer, Double> getPageRank(boolean dense){
+		// dense -> calculate the scores with arrays on the CSR snapshot of the 
+		// graph and map them back to the vertex IDs at the end, otherwise 
+		// calculate them with hash maps on the adjacency lists
+		if (dense) {
+			return new PageRank(getCSR(true),norm).calculatePageRank();
+		}
+		return new PageRank(exportGraph(),norm).calculatePageRank();
+	}
+	
+	public HashMap<Integer, Double> getPageRank(int threads){
+		// calculate the scores on the CSR snapshot with several threads
+		PageRank pageRank = new PageRank(getCSR(true),norm);
+		pageRank.setThreads(threads);
+		return pageRank.calculatePageRank();
+	}
+	
+	public HashMap<Integer, Double> getPageRank(Map<Integer, Double> previous){
+		// calculate the scores on the CSR snapshot starting from the scores of
+		// an earlier calculation, new vertices start with the default score
+		PageRank pageRank = new PageRank(getCSR(true),norm);
+		pageRank.setInitialRanks(previous, 1.0/(getVertexCount()*norm));
+		return pageRank.calculatePageRank();
+	}// end of method getPageRank() with previous scores
+	
+	public HashMap<Integer, Double> getStandardPageRank(boolean singlePrecision){
+		// textbook Page Rank scores (teleport per vertex, dangling vertices 
+		// spread their score over all vertices) by sparse matrix vector 
+		// products on the CSR snapshot, optionally stored as float
+		SparsePageRank pageRank = new SparsePageRank(getCSR(true));
+		pageRank.setSinglePrecision(singlePrecision);
+		return pageRank.calculatePageRank();
+	}// end of method getStandardPageRank()
+	
+	public HashMap<Integer, Double> getApproximatePageRank(int walks, int threads){
+		// estimate the textbook scores (like getStandardPageRank()) with walks
+		// random walks from each vertex (Monte Carlo) on the CSR snapshot with
+		// several threads
+		SparsePageRank pageRank = new SparsePageRank(getCSR(true));
+		pageRank.setThreads(threads);
+		pageRank.setMonteCarlo(walks);
+		return pageRank.calculatePageRank();
+	}// end of method getApproximatePageRank()
+	
+	public HashMap<Integer, Double> getPersonalizedPageRank(int seed){
+		// approximate Page Rank scores personalized to one seed vertex by
+		// forward push, with the same damping as getPageRank()
+		return getPersonalizedPageRank(Collections.singleton(seed), 1.0e-6);
+	}// end of method getPersonalizedPageRank()
+	
+	public HashMap<Integer, Double> getPersonalizedPageRank(Set<Integer> seeds, double eps){
+		// approximate Page Rank scores personalized to a set of seed vertices,
+		// eps is the push threshold (smaller is more accurate and slower).
+		// The push only reads the edges around the seeds, so it runs on the
+		// CSR snapshot if there is one and on the edge sets otherwise, instead
+		// of building a snapshot of the whole graph.
+		if (csr != null) {
+			return new PersonalizedPageRank(csr, eps, PageRank.DAMP).calculate(seeds);
+		}
+		return new PersonalizedPageRank(this, eps, PageRank.DAMP).calculate(seeds);
+	}// end of method getPersonalizedPageRank()
+	
+	public LinkedHashMap<Integer, Double> getTopInDegreeCentrality(int k){
+		// the k vertices with the highest in-degree centrality and their 
+		// values, highest first, found like getTopInDegree() and only the k 
+		// kept in-degrees are normalized
+		double normal = (getVertexCount()-1) * norm;
+		TopK top = getTopInDegrees(k);
+		int[] indices = top.getIndices();
+		double[] degrees = top.getScores();
+		LinkedHashMap<Integer, Double> result = new LinkedHashMap<Integer, Double>();
+		for (int i = 0; i < indices.length; i++) {
+			result.put(dictionary.getId(indices[i]), degrees[i] / normal);
+		}
+		return result;
+	}// end of method getTopInDegreeCentrality()
+	
+	public LinkedHashMap<Integer, Double> getTopPageRank(int k){
+		// the (at most) k vertices with the highest Page Rank score and their
+		// scores, highest first, without a map of all vertices
+		PageRank pageRank = new PageRank(getCSR(true),norm);
+		pageRank.run();
+		TopK top = new TopK(Math.min(k, getVertexCount()));
+		top.offerAll(pageRank.getRanks());
+		return getTop(top, pageRank.getRanks());
+	}// end of method getTopPageRank()
+	
+	public List<double[]> getTopEdgeBetweenness(int k){
+		// the (at most) k undirected edges with the highest edge betweenness
+		// centrality as {EBC, source, target}, highest first
+		return new GirvanNewman(getCSR(false)).getTopEdges(k);
+	}// end of method getTopEdgeBetweenness()
+	
+	private LinkedHashMap<Integer, Double> getTop(TopK top, double[] scores){
+		// map the vertex IDs of the top vertices to their scores (dense index)
+		LinkedHashMap<Integer, Double> result = new LinkedHashMap<Integer, Double>();
+		for (int v : top.getIndices()) {
+			result.put(dictionary.getId(v), scores[v]);
+		}
+		return result;
+	}// end of method getTop()
+	
 	public List<Graph> getSCCs() {
 		List<Graph> SCCs = getSCCs(true);
 		return SCCs;
 	}
 	
 	public List<Graph> getSCCs(boolean directed) {
+		return getSCCs(directed, 1);
+	}
+	
+	public List<Graph> getSCCs(boolean directed, int threads) {
 		// Finding the strongly connected components of the Graph with the 
-		// recursive Tarjan algorithm
-		
-		// create a Tarjan algorithm object and let it get the SCCs
-		// Note: This method is recursive and for very large graphs, hence very
-		// deep recursion, it will require a lot of stack memory. 
-		// If a stack overflow occurs, try increasing stack size or implement the algorithm 
-		// with its own stack.
-		TarjanSCC tarjan;
-		if(directed) {
-			tarjan = new TarjanSCC(vertices);
-		}
-		else {
-			tarjan = new TarjanSCC(undirected);
-		}
-		tarjan.run();
-		List<HashSet<Integer>> sccList = tarjan.getConnectedComponentList();
+		// Tarjan algorithm, or the parallel forward-backward algorithm if 
+		// more than one thread is used
+		List<HashSet<Integer>> sccList = getSCCList(directed, threads);
 		
 		// construct graphs representing the strongly connected components form 
 		// the SCC list returned by the Tarjan algorithm and put them in a list of graphs
 		List<Graph> SCCs = new LinkedList<Graph>();
 		for (HashSet<Integer> scc : sccList) {
 			// one new graph for each SCC
-			Graph sccGraph = new Graph();
-			for (int s : scc) {
-				sccGraph.addVertex(s);
-				for(int t : scc) {
-					sccGraph.addVertex(t);
-					if (this.vertices.get(s).contains(t)) {
-						sccGraph.addEdge(s, t);
-					}
-				}
-			}
-			// TODO: reconstruct edges for the SCCs from the original graph as well
-			// add the SCC to list of SCCs
-			SCCs.add(sccGraph);
+			SCCs.add(getSubgraph(scc));
 		}
 		
 		return SCCs;
@@ -146,6 +488,19 @@ public class Graph {
 	
 
 	public List <Graph> getCommunities(HashMap<Integer, HashSet<Integer>> undirEdges, int k, int e){
+		// the edge betweenness is calculated with the Brandes algorithm by default
+		return getCommunities(undirEdges,k,e,true);
+	}
+	
+	public List <Graph> getCommunities(HashMap<Integer, HashSet<Integer>> undirEdges, int k, int e, boolean brandes){
+		return getCommunities(undirEdges,k,e,brandes,1);
+	}
+	
+	public List <Graph> getCommunities(HashMap<Integer, HashSet<Integer>> undirEdges, int k, int e, boolean brandes, int threads){
+		// find k communities by removing e edges per iteration with the Girvan
+		// Newman algorithm, brandes selects the Brandes algorithm for the edge 
+		// betweenness instead of enumerating all shortest paths, which runs 
+		// with the given number of threads
 		
 		// list of communities to be returned
 		List <Graph> communities = new LinkedList<Graph>();
@@ -153,13 +508,26 @@ public class Graph {
 		HashMap<Integer, HashSet<Integer>> edges = undirEdges;
 		
 		// loop until number k communities is reached
+		// with the Brandes algorithm, one Girvan Newman object is used in
+		// incremental mode for all iterations, so the EBCs are only updated 
+		// where the removed edges changed them
+		GirvanNewman gn = null;
+		if (brandes) {
+			gn = new GirvanNewman(edges,true);
+			gn.setThreads(threads);
+			gn.setIncremental(true);
+		}
+		
 		int numIter = 0;
 		int numCom = 0;	
 		while(numCom < k) {
 			numIter++;
 			System.out.println("Girvan Newman iteraion: "+numIter);
 			// remove the highest EBC edge with the Girvan Newmann algorithm
-			edges = new GirvanNewman(edges).removeEdge(e);
+			if (!brandes) {
+				gn = new GirvanNewman(edges);
+			}
+			edges = gn.removeEdge(e);
 
 			// create a new graph from the new edges
 			Graph newGraph = new Graph();
@@ -179,22 +547,33 @@ public class Graph {
 	}
     
 	public List <Graph> getCommunities(int k, int e){
-		return getCommunities(undirected,k,e);
+		return getCommunities(exportUndirGraph(),k,e);
+	}
+	
+	public List <Graph> getCommunities(int k, int e, boolean brandes){
+		return getCommunities(exportUndirGraph(),k,e,brandes);
+	}
+	
+	public List <Graph> getCommunities(int k, int e, int threads){
+		return getCommunities(exportUndirGraph(),k,e,true,threads);
 	}
 	
 	public List <Graph> getCommunities(int k){
 		int e = 1;
-		return getCommunities(undirected,k,e);
+		return getCommunities(exportUndirGraph(),k,e);
 	}
 	
 	public List <Graph> getCommunitiesFromBiggestSCC(int k, int e){
+		return getCommunitiesFromBiggestSCC(k,e,1);
+	}
+	
+	public List <Graph> getCommunitiesFromBiggestSCC(int k, int e, int threads){
 		// only the biggest SCC of the original graph will be considered for the 
-		// community search
+		// community search, both SCCs and edge betweenness are calculated 
+		// with the given number of threads
 		
 		// get SCCs of graph
-		TarjanSCC tarjan = new TarjanSCC(vertices);
-		tarjan.run();
-		List<HashSet<Integer>> sccList = tarjan.getConnectedComponentList();
+		List<HashSet<Integer>> sccList = getSCCList(true, threads);
 		HashSet<Integer> biggestSCC = sccList.get(0);
 		// find the biggest
 		for(HashSet<Integer> scc : sccList) {
@@ -204,48 +583,242 @@ public class Graph {
 		}
 		//System.out.println(biggestSCC);
 		// extract the edges belonging to this biggest SCC from the original graph
-		HashMap<Integer, HashSet<Integer>> SCCedges = new HashMap<Integer, HashSet<Integer>>(undirected);
-		for (int v : undirected.keySet()) {
-			if(!biggestSCC.contains(v)) {
-				SCCedges.remove(v);
-				for(HashSet<Integer> es : SCCedges.values()) {
-					es.remove(v);
+		final HashSet<Integer> members = biggestSCC;
+		materialize();
+		HashMap<Integer, HashSet<Integer>> SCCedges = new HashMap<Integer, HashSet<Integer>>();
+		for (int v : members) {
+			HashSet<Integer> es = new HashSet<Integer>();
+			undirected.get(dictionary.get(v)).forEach(t -> {
+				if (members.contains(dictionary.getId(t))) {
+					es.add(dictionary.getId(t));
 				}
-			}
-			
+			});
+			SCCedges.put(v, es);
 		}
 		//System.out.println(SCCedges);
-		List<Graph> com = getCommunities(SCCedges,k,e);
+		List<Graph> com = getCommunities(SCCedges,k,e,true,threads);
 		
 		return com;
 	}
 	
+	public List<CSRGraph> getSCCViews(boolean directed, int threads) {
+		// same as getSCCs(), but each SCC is returned as a compact CSR snapshot 
+		// of the edges between its vertices instead of a copied Graph
+		CSRGraph graph = getCSR(directed);
+		List<CSRGraph> SCCs = new LinkedList<CSRGraph>();
+		for (HashSet<Integer> scc : getSCCList(directed, threads)) {
+			int[] members = new int[scc.size()];
+			int i = 0;
+			for (int v : scc) {
+				members[i++] = graph.getIndex(v);
+			}
+			SCCs.add(graph.subgraph(members));
+		}
+		return SCCs;
+	}// end of method getSCCViews()
+	
+	public Graph getSubgraph(Set<Integer> members) {
+		// create the subgraph induced by the vertices in members, with all
+		// directed and undirected edges of this graph between them. Each 
+		// member's edges are only looked at once, so this runs in O(V + E)
+		// of the subgraph instead of checking every pair of members.
+		materialize();
+		Graph subgraph = new Graph();
+		for (int s : members) {
+			subgraph.addVertex(s);
+		}
+		// (the undirected edges between members follow from the directed ones)
+		for (int s : members) {
+			int source = subgraph.dictionary.get(s);
+			vertices.get(dictionary.get(s)).forEach(t -> {
+				int target = subgraph.dictionary.get(dictionary.getId(t));
+				if (target >= 0) {
+					subgraph.addDenseEdge(source, target);
+				}
+			});
+		}
+		return subgraph;
+	}// end of method getSubgraph()
+	
+	private List<HashSet<Integer>> getSCCList(boolean directed, int threads) {
+		// get the vertices of each SCC from the Tarjan algorithm or, with more 
+		// than one thread, the parallel forward-backward algorithm
+		if (threads > 1) {
+			ParallelSCC parallel = new ParallelSCC(getCSR(directed), threads);
+			parallel.run();
+			return parallel.getConnectedComponentList();
+		}
+		TarjanSCC tarjan = new TarjanSCC(getCSR(directed));
+		tarjan.run();
+		return tarjan.getConnectedComponentList();
+	}// end of method getSCCList()
+	
+	public CSRGraph getCSR(boolean directed) {
+		// get an immutable compressed sparse row (CSR) snapshot of the 
+		// directed or undirected version of the graph, the snapshot is
+		// kept until the graph is changed
+		if (directed) {
+			if (csr == null) {
+				csr = toCSR(vertices);
+			}
+			return csr;
+		}
+		if (undirCSR == null) {
+			undirCSR = loaded != null ? loaded.undirected() : toCSR(undirected);
+		}
+		return undirCSR;
+	}// end of method getCSR()
+	
+	private CSRGraph toCSR(ArrayList<IntSet> edges) {
+		// copy the edge sets into the rows of a CSR snapshot, the dense indices
+		// are the same as in the graph (the snapshot gets its own copy of the
+		// dictionary, since the graph can still get new vertices)
+		int numVerts = dictionary.size();
+		int[] offsets = new int[numVerts+1];
+		for (int v = 0; v < numVerts; v++) {
+			offsets[v+1] = offsets[v] + edges.get(v).size();
+		}
+		int[] targets = new int[offsets[numVerts]];
+		for (int v = 0; v < numVerts; v++) {
+			edges.get(v).copyTo(targets, offsets[v]);
+		}
+		return new CSRGraph(offsets, targets, dictionary.copy());
+	}// end of method toCSR()
+	
+	private HashMap<Integer, HashSet<Integer>> toAdjacency(ArrayList<IntSet> edges) {
+		// create adjacency lists with the vertex IDs
+		HashMap<Integer, HashSet<Integer>> adjacency = new HashMap<Integer, HashSet<Integer>>();
+		for (int v = 0; v < dictionary.size(); v++) {
+			HashSet<Integer> targets = new HashSet<Integer>();
+			edges.get(v).forEach(t -> targets.add(dictionary.getId(t)));
+			adjacency.put(dictionary.getId(v), targets);
+		}
+		return adjacency;
+	}// end of method toAdjacency()
+	
+	public void saveSnapshot(String filename) throws IOException {
+		// save the graph in the binary snapshot format (see GraphSnapshot),
+		// including the undirected version
+		saveSnapshot(filename, true);
+	}// end of method saveSnapshot()
+	
+	public void saveSnapshot(String filename, boolean withUndirected) throws IOException {
+		// save the graph in the binary snapshot format, the undirected version 
+		// can be left out, it is then derived from the directed edges on loading
+		CSRGraph graph = getCSR(true);
+		new GraphSnapshot(graph, withUndirected ? graph.undirected() : null).write(filename);
+	}// end of method saveSnapshot()
+	
+	void addSnapshot(GraphSnapshot snapshot) {
+		// add all vertices and edges of a snapshot. An empty graph (without 
+		// listeners) only keeps the snapshot's CSRs and builds its edge sets 
+		// when they are first needed (materialize()), so loading takes no 
+		// more than reading the file and the algorithms on the CSR snapshot 
+		// can start right away.
+		CSRGraph graph = snapshot.getCSR();
+		if (dictionary.size() == 0 && listeners.isEmpty()) {
+			loaded = graph;
+			dictionary = graph.getDictionary().copy();
+			vertices = null;
+			undirected = null;
+			numEdges = graph.getEdgeCount();
+			csr = graph;
+			undirCSR = snapshot.getUndirectedCSR();
+			// (-1: counted when it is first asked for)
+			numUndirEdges = undirCSR != null ? undirCSR.getEdgeCount() : -1;
+			if (inDegrees != null) {
+				inDegrees = new DegreeHeap(new DegreeCentrality(graph,norm).getInDegrees());
+			}
+			return;
+		}
+		// dense index in this graph of each dense index in the snapshot
+		int[] dense = new int[graph.getVertexCount()];
+		for (int v = 0; v < graph.getVertexCount(); v++) {
+			addVertex(graph.getId(v));
+			dense[v] = dictionary.get(graph.getId(v));
+		}
+		// (the undirected edges follow from the directed ones)
+		for (int v = 0; v < graph.getVertexCount(); v++) {
+			for (int i = graph.getOffsets()[v]; i < graph.getOffsets()[v+1]; i++) {
+				addDenseEdge(dense[v], dense[graph.getTargets()[i]]);
+			}
+		}
+	}// end of method addSnapshot()
+	
+	private void materialize() {
+		// build the edge sets of a graph that was loaded from a snapshot, 
+		// before it is changed or its edge sets are used
+		if (loaded == null) {
+			return;
+		}
+		CSRGraph graph = loaded;
+		loaded = null;
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		int numVerts = graph.getVertexCount();
+		vertices = new ArrayList<IntSet>(numVerts);
+		undirected = new ArrayList<IntSet>(numVerts);
+		for (int v = 0; v < numVerts; v++) {
+			vertices.add(new IntSet(offsets[v+1] - offsets[v]));
+			undirected.add(new IntSet());
+		}
+		numEdges = 0;
+		numUndirEdges = 0;
+		for (int v = 0; v < numVerts; v++) {
+			for (int i = offsets[v]; i < offsets[v+1]; i++) {
+				int t = targets[i];
+				if (!vertices.get(v).add(t)) {
+					continue;
+				}
+				numEdges++;
+				if (undirected.get(v).add(t)) {
+					numUndirEdges++;
+				}
+				if (undirected.get(t).add(v)) {
+					numUndirEdges++;
+				}
+			}
+		}
+	}// end of method materialize()
+	
 	public HashMap<Integer, HashSet<Integer>> exportGraph() {
-		return vertices;
+		// a copy of the edges as adjacency lists with vertex IDs
+		materialize();
+		return toAdjacency(vertices);
 	}// end of method exportGraph()
 	
 	public HashMap<Integer, HashSet<Integer>> exportUndirGraph() {
-		return undirected;
+		// a copy of the undirected edges as adjacency lists with vertex IDs
+		materialize();
+		return toAdjacency(undirected);
 	}// end of method exportUndirGraph()
 	
 	public int getVertexCount() {
-		return vertices.keySet().size();
+		return dictionary.size();
 	}// end of method getVertexCount()
 	
+	public int getVertexId(int index) {
+		// vertex ID of a dense index (0 <= index < getVertexCount())
+		return dictionary.getId(index);
+	}// end of method getVertexId()
+	
+	IntSet getOutNeighbors(int index) {
+		// the targets (dense indices) of the edges from a dense index, must 
+		// not be changed
+		materialize();
+		return vertices.get(index);
+	}// end of method getOutNeighbors()
+	
 	public int getEdgeCount() {
-		int count = 0;
-		for (HashSet<Integer> edges : vertices.values()) {
-			count += edges.size();
-		}
-		return count;
+		return numEdges;
 	}// end of method getEdgeCount()
 	
 	public int getUndirEdgeCount() {
-		int count = 0;
-		for (HashSet<Integer> edges : undirected.values()) {
-			count += edges.size();
+		if (numUndirEdges < 0) {
+			// loaded without the undirected version, which is derived once
+			numUndirEdges = getCSR(false).getEdgeCount();
 		}
-		return count;
+		return numUndirEdges;
 	}// end of method getUndirEdgeCount()
 	
 }// end of class Graph
\ No newline at end of file
@@ -0,0 +1,16 @@
+/*
+ * This interface is implemented by classes that keep results up to date while
+ * a Graph grows (e.g. DynamicPageRank). A listener registered with
+ * Graph.addListener() is called after every new vertex and every new edge
+ * (edges that are already in the graph are not reported). Vertices are given
+ * by their dense index in the graph, which never changes; Graph.getVertexId()
+ * translates it back to the vertex ID.
+ */
+public interface GraphListener {
+
+	// a vertex with the next dense index was added
+	void vertexAdded(int index);
+
+	// an edge from the dense index source to the dense index target was added
+	void edgeAdded(int source, int target);
+}
@@ -5,42 +5,419 @@
  *
  */
 
-import java.io.File;
-import java.util.HashSet;
-import java.util.Scanner;
-import java.util.Set;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class GraphLoader {
+
+    // size of the parts of the file that are mapped into memory at once
+    private static final long MAP_SIZE = 1L << 30;
+
     /**
      * Loads graph with data from a file.
      * The file should consist of lines with 2 integers each, corresponding
      * to a "from" vertex and a "to" vertex.
-     */ 
+     */
     public static void loadGraph(Graph g, String filename) {
-        Set<Integer> seen = new HashSet<Integer>();
-        Scanner sc;
+        loadGraph(g, filename, 1);
+    }
+
+    /**
+     * Loads graph with data from a file, parsing it with the given number
+     * of threads.
+     */
+    public static void loadGraph(Graph g, String filename, int threads) {
+        if (threads > 1) {
+            // The CSR snapshot is built by all threads, an empty graph keeps
+            // it without adding the edges one by one.
+            try {
+                g.addSnapshot(new GraphSnapshot(loadCSR(filename, threads), null));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        EdgeList edges;
         try {
-            sc = new Scanner(new File(filename));
+            edges = loadEdges(filename, threads);
         } catch (Exception e) {
             e.printStackTrace();
             return;
         }
-        // Iterate over the lines in the file, adding new
-        // vertices as they are found and connecting them with edges.
-        while (sc.hasNextInt()) {
-            int v1 = sc.nextInt();
-            int v2 = sc.nextInt();
-            if (!seen.contains(v1)) {
-                g.addVertex(v1);
-                seen.add(v1);
+        // Add all edges in one batch, new vertices are created as they are
+        // found.
+        g.addEdges(edges.getFrom(), edges.getTo(), edges.size());
+    }
+
+    /**
+     * Loads graph with data from a binary snapshot file that was saved with
+     * Graph.saveSnapshot(), without parsing any text.
+     */
+    public static void loadSnapshot(Graph g, String filename) throws IOException {
+        long startTime = System.nanoTime();
+        GraphSnapshot snapshot = GraphSnapshot.read(filename);
+        g.addSnapshot(snapshot);
+        System.out.println(String.format("Loaded snapshot of %d vertices and %d edges from %s in %.3f s",
+                snapshot.getCSR().getVertexCount(), snapshot.getCSR().getEdgeCount(), filename,
+                (System.nanoTime() - startTime) / 1e9));
+    }
+
+    /**
+     * Loads a CSR snapshot of the graph in a file (same format as for
+     * loadGraph) without creating a Graph.
+     */
+    public static CSRGraph loadCSR(String filename) throws IOException {
+        return loadEdges(filename).toCSR();
+    }
+
+    /**
+     * Loads a CSR snapshot of the graph in a file with the given number of
+     * threads. Each chunk of the file is parsed by its own task, which also
+     * numbers the vertices of the chunk in a dictionary of its own and counts
+     * the edges of each of them. Only the dictionaries and counts of the chunks
+     * are merged by one thread (in the order of the chunks, so the vertices get
+     * the same dense indices as with one thread): this gives the offsets of the
+     * rows and the position in them where each chunk writes the edges of each
+     * source (a counting sort). Then the chunks write their edges straight into
+     * the targets of the snapshot and the rows are sorted in parallel.
+     */
+    public static CSRGraph loadCSR(String filename, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1.");
+        }
+        if (threads == 1) {
+            return loadCSR(filename);
+        }
+        long startTime = System.nanoTime();
+        List<Chunk> chunks = parseChunks(filename, threads, true);
+
+        // dense index of every vertex of every chunk
+        VertexDictionary dictionary = new VertexDictionary();
+        for (Chunk chunk : chunks) {
+            chunk.dense = new int[chunk.vertices.size()];
+            for (int v = 0; v < chunk.dense.length; v++) {
+                chunk.dense[v] = dictionary.add(chunk.vertices.getId(v));
+            }
+        }
+        // offsets of the rows from the counts of all chunks, then the counts
+        // are replaced by the position of the chunk's edges in each row
+        int numVerts = dictionary.size();
+        int[] offsets = new int[numVerts+1];
+        for (Chunk chunk : chunks) {
+            for (int v = 0; v < chunk.dense.length; v++) {
+                offsets[chunk.dense[v]+1] += chunk.next[v];
             }
-            if (!seen.contains(v2)) {
-                g.addVertex(v2);
-                seen.add(v2);
+        }
+        for (int v = 0; v < numVerts; v++) {
+            offsets[v+1] += offsets[v];
+        }
+        int[] next = Arrays.copyOf(offsets, numVerts);
+        for (Chunk chunk : chunks) {
+            for (int v = 0; v < chunk.dense.length; v++) {
+                int count = chunk.next[v];
+                chunk.next[v] = next[chunk.dense[v]];
+                next[chunk.dense[v]] += count;
+            }
+        }
+
+        // every chunk writes its edges into its own positions of the rows
+        int[] targets = new int[offsets[numVerts]];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (Chunk chunk : chunks) {
+            tasks.add(() -> {
+                int[] from = chunk.edges.getFrom();
+                int[] to = chunk.edges.getTo();
+                for (int i = 0; i < chunk.edges.size(); i++) {
+                    targets[chunk.next[from[i]]++] = chunk.dense[to[i]];
+                }
+                return null;
+            });
+        }
+        runAll(tasks, threads, filename);
+        // sort the rows in ranges of vertices (duplicates are dropped below)
+        tasks.clear();
+        int numRanges = 4 * threads;
+        for (int r = 0; r < numRanges; r++) {
+            int first = (int) ((long) numVerts * r / numRanges);
+            int last = (int) ((long) numVerts * (r + 1) / numRanges);
+            tasks.add(() -> {
+                for (int v = first; v < last; v++) {
+                    Arrays.sort(targets, offsets[v], offsets[v+1]);
+                }
+                return null;
+            });
+        }
+        runAll(tasks, threads, filename);
+        CSRGraph csr = new CSRGraph(offsets, targets, dictionary).deduplicated();
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        double megabytes = Files.size(Paths.get(filename)) / (1024.0 * 1024.0);
+        System.out.println(String.format("Loaded %d vertices and %d edges from %s with %d threads: %.1f MB in %.3f s (%.1f MB/s)",
+                numVerts, csr.getEdgeCount(), filename, threads, megabytes, seconds, megabytes / seconds));
+        return csr;
+    }
+
+    /**
+     * Loads the edges in a file (same format as for loadGraph) into primitive
+     * arrays. The file is mapped into memory and the ASCII digits are parsed
+     * directly from the bytes instead of using a Scanner. Lines starting with
+     * '#' (comments in SNAP edge lists) are skipped. Prints the throughput.
+     */
+    public static EdgeList loadEdges(String filename) throws IOException {
+        long startTime = System.nanoTime();
+        EdgeParser parser = new EdgeParser(new EdgeList());
+        long length;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            length = channel.size();
+            // map the file in parts (a single mapping is limited to 2 GB),
+            // the parser keeps its state, so numbers may cross parts
+            for (long pos = 0; pos < length; pos += MAP_SIZE) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_SIZE, length - pos));
+                parser.parse(buffer, 0, buffer.limit());
+            }
+        }
+        parser.finish();
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        double megabytes = length / (1024.0 * 1024.0);
+        System.out.println(String.format("Loaded %d edges from %s: %.1f MB in %.3f s (%.1f MB/s)",
+                parser.edges.size(), filename, megabytes, seconds, megabytes / seconds));
+        return parser.edges;
+    }
+
+    /**
+     * Loads the edges in a file like loadEdges(filename), but with several
+     * threads. The file is split into chunks at line breaks, each chunk is
+     * mapped and parsed by its own task into its own edge list, and the lists
+     * are appended in the order of the chunks, so the edges are in the same
+     * order as in the file.
+     */
+    public static EdgeList loadEdges(String filename, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1.");
+        }
+        if (threads == 1) {
+            return loadEdges(filename);
+        }
+        long startTime = System.nanoTime();
+        List<Chunk> chunks = parseChunks(filename, threads, false);
+
+        // append the edges of all chunks
+        int numEdges = 0;
+        for (Chunk chunk : chunks) {
+            numEdges += chunk.edges.size();
+        }
+        EdgeList edges = new EdgeList(numEdges);
+        for (Chunk chunk : chunks) {
+            edges.addAll(chunk.edges);
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        double megabytes = Files.size(Paths.get(filename)) / (1024.0 * 1024.0);
+        System.out.println(String.format("Loaded %d edges from %s with %d threads: %.1f MB in %.3f s (%.1f MB/s)",
+                edges.size(), filename, threads, megabytes, seconds, megabytes / seconds));
+        return edges;
+    }
+
+    /**
+     * Splits the file into chunks at line breaks (about four per thread) and
+     * parses each chunk with its own task into its own edge list. With dense
+     * set, each task also numbers the vertices of its chunk in the order they
+     * appear, replaces the vertex IDs of the edges by these numbers and counts
+     * the edges of each source.
+     */
+    private static List<Chunk> parseChunks(String filename, int threads, boolean dense) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long length = channel.size();
+            // about four chunks per thread, at most one mapping each
+            long chunkSize = Math.max(1L << 20, Math.min(MAP_SIZE, length / (4L * threads) + 1));
+            List<Long> bounds = new ArrayList<Long>();
+            bounds.add(0L);
+            while (bounds.get(bounds.size()-1) < length) {
+                bounds.add(nextLine(channel, bounds.get(bounds.size()-1) + chunkSize, length));
+            }
+
+            List<Callable<Chunk>> tasks = new ArrayList<Callable<Chunk>>();
+            for (int c = 0; c < bounds.size()-1; c++) {
+                long start = bounds.get(c);
+                long end = bounds.get(c+1);
+                tasks.add(() -> {
+                    EdgeParser parser = new EdgeParser(new EdgeList((int) Math.min(Integer.MAX_VALUE, (end - start) / 8)), start);
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    parser.parse(buffer, 0, buffer.limit());
+                    parser.finish();
+                    Chunk chunk = new Chunk(parser.edges);
+                    if (dense) {
+                        chunk.numberVertices();
+                    }
+                    return chunk;
+                });
+            }
+            return runAll(tasks, threads, filename);
+        }
+    }
+
+    /**
+     * Runs the tasks with the given number of threads and returns their
+     * results in the order of the tasks.
+     */
+    private static <T> List<T> runAll(List<Callable<T>> tasks, int threads, String filename) throws IOException {
+        List<T> results = new ArrayList<T>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<T> result : pool.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+        } catch (ExecutionException e) {
+            // errors in the file (NumberFormatException) are thrown as they
+            // are (the pool may give a copy of the task's exception, which
+            // has the original one as cause)
+            Throwable cause = e.getCause();
+            if (cause != null && cause.getCause() != null && cause.getCause().getClass() == cause.getClass()) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Parsing " + filename + " failed.", e);
+        } catch (InterruptedException e) {
+            throw new IOException("Parsing " + filename + " failed.", e);
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    /**
+     * The edges parsed from one chunk of a file. After numberVertices(), the
+     * edges use the numbers of the vertices in the chunk (vertices), next has
+     * the number of edges of each source, and loadCSR() adds the dense index
+     * in the whole graph of each vertex (dense).
+     */
+    private static class Chunk {
+        final EdgeList edges;
+        VertexDictionary vertices;
+        int[] next;
+        int[] dense;
+
+        Chunk(EdgeList edges) {
+            this.edges = edges;
+        }
+
+        void numberVertices() {
+            int[] from = edges.getFrom();
+            int[] to = edges.getTo();
+            vertices = new VertexDictionary();
+            for (int i = 0; i < edges.size(); i++) {
+                from[i] = vertices.add(from[i]);
+                to[i] = vertices.add(to[i]);
+            }
+            next = new int[vertices.size()];
+            for (int i = 0; i < edges.size(); i++) {
+                next[from[i]]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the position after the next line break at or after pos
+     * (or the length of the file if there is none).
+     */
+    private static long nextLine(FileChannel channel, long pos, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (pos < length) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return length;
+    }
+
+    /**
+     * Parser for integers in ASCII text, which are added as pairs of
+     * "from" and "to" vertex to an edge list. Any other character separates
+     * numbers, and '#' at the start of a number skips the rest of the line.
+     * A number outside of the int range throws a NumberFormatException with
+     * its position in the file.
+     */
+    static class EdgeParser {
+        final EdgeList edges;
+        // position in the file of the next byte to parse
+        private long offset;
+        // the number being parsed, and whether there is one and it is negative
+        private long value;
+        private boolean inNumber;
+        private boolean negative;
+        private boolean inComment;
+        // the "from" vertex of the current edge, if it has already been parsed
+        private int source;
+        private boolean hasSource;
+
+        EdgeParser(EdgeList edges) {
+            this(edges, 0);
+        }
+
+        EdgeParser(EdgeList edges, long offset) {
+            // offset: position in the file of the first byte to parse
+            this.edges = edges;
+            this.offset = offset;
+        }
+
+        void parse(ByteBuffer buffer, int start, int end) {
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (inComment) {
+                    inComment = b != '\n';
+                }
+                else if (b >= '0' && b <= '9') {
+                    value = 10 * value + (b - '0');
+                    inNumber = true;
+                    if (value > (negative ? 1L << 31 : Integer.MAX_VALUE)) {
+                        throw new NumberFormatException("Vertex ID out of the int range at byte "
+                                + (offset + i - start) + " of the file");
+                    }
+                }
+                else if (b == '-' && !inNumber && !negative) {
+                    negative = true;
+                }
+                else {
+                    finish();
+                    inComment = b == '#';
+                }
+            }
+            offset += end - start;
+        }
+
+        void finish() {
+            // end of the current number (if any)
+            if (inNumber) {
+                int number = (int) (negative ? -value : value);
+                if (hasSource) {
+                    edges.add(source, number);
+                }
+                source = number;
+                hasSource = !hasSource;
             }
-            g.addEdge(v1, v2);
+            value = 0;
+            inNumber = false;
+            negative = false;
         }
-        
-        sc.close();
     }
 }
@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * This class saves and loads CSR snapshots of a graph in a binary file, so a
+ * data set only has to be parsed from its text edge list once. The file
+ * consists of little-endian ints:
+ *   header:     MAGIC, VERSION, flags (1 = with undirected mirror),
+ *               number of vertices V, number of edges E, number of
+ *               undirected edges U (0 without mirror)
+ *   id map:     ids[V] (original vertex ID of each dense index)
+ *   directed:   offsets[V+1], targets[E]
+ *   undirected: offsets[V+1], targets[U] (only with mirror)
+ * Loading maps the file into memory and copies each array with one bulk
+ * read, there is no per-edge parsing.
+ */
+public class GraphSnapshot {
+
+	// "GRPH" and the current version of the format
+	public static final int MAGIC = 0x48505247;
+	public static final int VERSION = 1;
+	private static final int HEADER_INTS = 6;
+	private static final int WITH_UNDIRECTED = 1;
+	// number of ints that are written or mapped at once
+	private static final int BLOCK_INTS = 1 << 28;
+
+	private CSRGraph graph;
+	private CSRGraph undirected;
+
+	public GraphSnapshot(CSRGraph graph, CSRGraph undirected) {
+		// constructor initializes field variables, undirected may be null. It
+		// must have the same vertex IDs and dense indices as graph.
+		if (undirected != null && undirected.getIds() != graph.getIds()
+				&& !Arrays.equals(undirected.getIds(), graph.getIds())) {
+			throw new IllegalArgumentException("The undirected graph must have the same dense indices.");
+		}
+		this.graph = graph;
+		this.undirected = undirected;
+	}// end of constructor GraphSnapshot()
+
+	public void write(String filename) throws IOException {
+		// save the snapshot to a file (an existing file is replaced)
+		int numVerts = graph.getVertexCount();
+		int[] header = new int[] {MAGIC, VERSION, undirected == null ? 0 : WITH_UNDIRECTED,
+				numVerts, graph.getEdgeCount(), undirected == null ? 0 : undirected.getEdgeCount()};
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeInts(channel, header, header.length);
+			writeInts(channel, graph.getIds(), numVerts);
+			writeInts(channel, graph.getOffsets(), numVerts+1);
+			writeInts(channel, graph.getTargets(), graph.getEdgeCount());
+			if (undirected != null) {
+				writeInts(channel, undirected.getOffsets(), numVerts+1);
+				writeInts(channel, undirected.getTargets(), undirected.getEdgeCount());
+			}
+		}
+	}// end of method write()
+
+	public static GraphSnapshot read(String filename) throws IOException {
+		// load a snapshot saved with write()
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			if (channel.size() < 4L * HEADER_INTS) {
+				throw new IOException("Not a graph snapshot: " + filename);
+			}
+			long pos = 0;
+			int[] header = readInts(channel, pos, HEADER_INTS);
+			pos += 4L * HEADER_INTS;
+			if (header[0] != MAGIC) {
+				throw new IOException("Not a graph snapshot: " + filename);
+			}
+			if (header[1] != VERSION) {
+				throw new IOException("Unsupported graph snapshot version " + header[1] + ": " + filename);
+			}
+			boolean withUndirected = (header[2] & WITH_UNDIRECTED) != 0;
+			int numVerts = header[3];
+			int numEdges = header[4];
+			int numUndirEdges = header[5];
+			long expected = 4L * (HEADER_INTS + numVerts + numVerts + 1 + numEdges);
+			if (withUndirected) {
+				expected += 4L * (numVerts + 1 + numUndirEdges);
+			}
+			if (numVerts < 0 || numEdges < 0 || numUndirEdges < 0 || channel.size() != expected) {
+				throw new IOException("Corrupt graph snapshot: " + filename);
+			}
+
+			int[] ids = readInts(channel, pos, numVerts);
+			pos += 4L * numVerts;
+			int[] offsets = readInts(channel, pos, numVerts+1);
+			pos += 4L * (numVerts+1);
+			int[] targets = readInts(channel, pos, numEdges);
+			pos += 4L * numEdges;
+			checkEdges(offsets, targets, filename);
+			CSRGraph graph;
+			try {
+				graph = new CSRGraph(offsets, targets, ids);
+			}
+			catch (IllegalArgumentException e) {
+				// duplicate vertex IDs
+				throw new IOException("Corrupt graph snapshot: " + filename, e);
+			}
+			CSRGraph undirected = null;
+			if (withUndirected) {
+				int[] undirOffsets = readInts(channel, pos, numVerts+1);
+				pos += 4L * (numVerts+1);
+				int[] undirTargets = readInts(channel, pos, numUndirEdges);
+				checkEdges(undirOffsets, undirTargets, filename);
+				undirected = new CSRGraph(undirOffsets, undirTargets, graph.getDictionary());
+			}
+			return new GraphSnapshot(graph, undirected);
+		}
+	}// end of method read()
+
+	private static void checkEdges(int[] offsets, int[] targets, String filename) throws IOException {
+		// the rows must start at 0, never go backwards and end with the last 
+		// edge, and every target must be a dense index, so that a corrupt file
+		// fails here and not later in an algorithm
+		int numVerts = offsets.length - 1;
+		if (offsets[0] != 0 || offsets[numVerts] != targets.length) {
+			throw new IOException("Corrupt graph snapshot (offsets): " + filename);
+		}
+		for (int v = 0; v < numVerts; v++) {
+			if (offsets[v+1] < offsets[v]) {
+				throw new IOException("Corrupt graph snapshot (offsets): " + filename);
+			}
+		}
+		for (int target : targets) {
+			if (target < 0 || target >= numVerts) {
+				throw new IOException("Corrupt graph snapshot (targets): " + filename);
+			}
+		}
+	}// end of method checkEdges()
+
+	private static void writeInts(FileChannel channel, int[] values, int count) throws IOException {
+		// write the first count values in blocks through a direct buffer
+		ByteBuffer buffer = ByteBuffer.allocateDirect(4 * Math.min(count, 1 << 18)).order(ByteOrder.LITTLE_ENDIAN);
+		IntBuffer ints = buffer.asIntBuffer();
+		for (int start = 0; start < count; start += ints.capacity()) {
+			int length = Math.min(ints.capacity(), count - start);
+			ints.clear();
+			ints.put(values, start, length);
+			buffer.clear();
+			buffer.limit(4 * length);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}// end of method writeInts()
+
+	private static int[] readInts(FileChannel channel, long pos, int count) throws IOException {
+		// read count ints starting at byte pos with bulk copies from the mapped file
+		int[] values = new int[count];
+		for (int start = 0; start < count; start += BLOCK_INTS) {
+			int length = Math.min(BLOCK_INTS, count - start);
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos + 4L * start, 4L * length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, start, length);
+		}
+		return values;
+	}// end of method readInts()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public CSRGraph getCSR() {
+		return graph;
+	}// end of method getCSR()
+
+	public CSRGraph getUndirectedCSR() {
+		// the undirected mirror, or null if the snapshot has none
+		return undirected;
+	}// end of method getUndirectedCSR()
+}
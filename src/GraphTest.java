@@ -12,10 +12,14 @@ import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -180,10 +184,60 @@ public class GraphTest {
 		graph = new Graph();
 		GraphLoader.loadGraph(graph, "data/TestGraphs/TestGraph0.015.txt");
 		passed = this.testTarjanSCC(graph, "data/TestGraphs/scc0.015.txt");
+		// same test for the parallel forward-backward algorithm
+		passed = this.testTarjanSCC(graph, "data/TestGraphs/scc0.015.txt", 4);
 
 		graph = new Graph();
 		GraphLoader.loadGraph(graph, "data/TestGraphs/TestGraph0.01.txt");
 		passed = this.testTarjanSCC(graph, "data/TestGraphs/scc0.01.txt");
+		passed = this.testTarjanSCC(graph, "data/TestGraphs/scc0.01.txt", 4);
+		
+		// Tests the other Page Rank modes (adaptive sweeps, textbook scores 
+		// in double and float, Monte Carlo estimate) with the 200 node graph
+		graph = this.testLoadGraph("data/TestGraphs/TestGraph200.txt");
+		passed = this.testPageRankModes(graph,"data/TestGraphs/pr200.txt");
+		
+		// Tests the personalized Page Rank by forward push on the edge sets
+		// and on the CSR snapshot of the 200 node graph
+		graph = this.testLoadGraph("data/TestGraphs/TestGraph200.txt");
+		passed = this.testPersonalizedPageRank(graph);
+		
+		// Tests the dynamic Page Rank while the edges of the 200 node graph 
+		// are added, against the textbook scores calculated from scratch
+		graph = this.testLoadGraph("data/TestGraphs/TestGraph200.txt");
+		passed = this.testDynamicPageRank(graph);
+		
+		// Tests parsing vertex IDs at the ends of the int range and beyond
+		passed = this.testEdgeParser();
+		
+		// Tests the dictionary of dense vertex indices
+		passed = this.testVertexDictionary();
+		
+		// Tests the primitive int set and maps against the Java collections
+		passed = this.testIntSet();
+		passed = this.testIntMaps();
+		
+		// Tests saving the 200 node graph as a binary snapshot and loading it
+		// again, and that corrupt snapshot files are rejected
+		graph = this.testLoadGraph("data/TestGraphs/TestGraph200.txt");
+		passed = this.testSnapshot(graph);
+		
+		// Tests the top k vertices and edges of the 200 node graph against 
+		// sorting all scores
+		graph = this.testLoadGraph("data/TestGraphs/TestGraph200.txt");
+		passed = this.testTopK(graph);
+		
+		// Tests adding batches of edges (with duplicates and new vertices) 
+		// against adding the same edges one by one
+		passed = this.testAddEdges();
+		
+		// Tests that the tracked in-degrees stay equal to the counted ones 
+		// while edges are added one by one and in batches
+		passed = this.testDegreeTracking();
+		
+		// Tests adding edges from two threads while two other threads read
+		// the published epochs of a concurrent graph
+		passed = this.testConcurrentGraph();
 
 		// Tests multi-path BFS algorithm with 50 node 132 edges graph with edge probability 0.1
 		// the graph is connected and undirected 
@@ -194,13 +248,46 @@ public class GraphTest {
 		// 50 node 132 edges graph with edge probability 0.1
 		// the graph is connected and undirected
 		graph = this.testLoadGraph("data/TestGraphs/TestGraphSP50.txt");
-		passed = this.testEdgeBetweennessCentrality(graph,"data/TestGraphs/EBC50.txt");
+		passed = this.testEdgeBetweennessCentrality(graph,"data/TestGraphs/EBC50.txt",false);
+		// same test for the EBC calculated with the Brandes algorithm
+		passed = this.testEdgeBetweennessCentrality(graph,"data/TestGraphs/EBC50.txt",true);
 		
 		// Tests Girvan Newmann algorithm for community detection with 200 node 
 		// 604 edges graph with edge probability 0.015, graph is directed
 		graph = this.testLoadGraph("data/TestGraphs/TestGraphGN200.txt");
 		passed = this.testGetCommunities(graph,"data/TestGraphs/GN200.txt");
 		
+		// Tests Girvan Newmann algorithm removing several edges per iteration 
+		// (incremental Brandes EBC) against the shortest path enumeration, 
+		// 50 node 132 edges graph, connected and undirected
+		graph = this.testLoadGraph("data/TestGraphs/TestGraphSP50.txt");
+		passed = this.testGetCommunities(graph, 3, 2);
+		
+		// Tests the EBCs updated after each removal in incremental mode against
+		// a new Brandes calculation. Two cliques of 6 vertices joined by one 
+		// edge: the first removal is this bridge, afterwards each removed 
+		// clique edge only lies on the shortest paths from its end vertices, 
+		// so both updates without recalculating the components are used. The
+		// GN200 and 200 node graphs also remove bridges and edges that need 
+		// a recalculation.
+		graph = new Graph();
+		for (int c = 0; c < 2; c++) {
+			for (int i = 0; i < 6; i++) {
+				graph.addVertex(6*c+i);
+			}
+			for (int i = 0; i < 6; i++) {
+				for (int j = i+1; j < 6; j++) {
+					graph.addEdge(6*c+i, 6*c+j);
+				}
+			}
+		}
+		graph.addEdge(5, 6);
+		passed = this.testIncrementalEBC(graph, 5);
+		graph = this.testLoadGraph("data/TestGraphs/TestGraphGN200.txt");
+		passed = this.testIncrementalEBC(graph, 10);
+		graph = this.testLoadGraph("data/TestGraphs/TestGraph200.txt");
+		passed = this.testIncrementalEBC(graph, 5);
+		
 		return passed;
 	}
 	
@@ -367,8 +454,890 @@ public class GraphTest {
 		return passed;
 	}
 	
+	private boolean testPageRankModes(Graph graph, String filename) {
+		// test the adaptive Page Rank against the test scores, and the 
+		// textbook scores in float and from random walks against the ones 
+		// in double
+		System.out.println("ENTERING PAGE RANK MODES TEST");
+		// pass yes or not, to be returned
+		boolean passed = true;
+		
+		// scan a test file
+		HashMap<Integer, Double> testPRs = new HashMap<Integer, Double>();
+		Scanner sc;
+		try {
+			sc = new Scanner(new File(filename));
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+		while(sc.hasNextInt()) {
+			int v = sc.nextInt();
+			double pr = sc.nextDouble();
+			testPRs.put(v, pr);
+		}
+		sc.close();
+		
+		// adaptive sweeps have the same fixed point as the plain iteration
+		System.out.println("Calculating adaptive Page-Rank scores...");
+		PageRank adaptive = new PageRank(graph.getCSR(true), 1.0);
+		adaptive.setAdaptive(1.0e-10);
+		HashMap<Integer, Double> PRs = adaptive.calculatePageRank();
+		HashMap<Integer, Double> plainPRs = graph.getPageRank();
+		// the sweeps run with one thread only
+		try {
+			adaptive.setThreads(2);
+			System.out.println("MISMATCH -- ADAPTIVE MODE WITH 2 THREADS ACCEPTED");
+			passed = false;
+		} catch (IllegalStateException e) {
+		}
+		PageRank parallel = new PageRank(graph.getCSR(true), 1.0);
+		parallel.setThreads(2);
+		try {
+			parallel.setAdaptive(1.0e-10);
+			System.out.println("MISMATCH -- ADAPTIVE MODE AFTER 2 THREADS ACCEPTED");
+			passed = false;
+		} catch (IllegalStateException e) {
+		}
+		for(int v : PRs.keySet()) {
+			if (Math.abs(PRs.get(v)-testPRs.get(v)) > 0.001 || Math.abs(PRs.get(v)-plainPRs.get(v)) > 1.0e-6) {
+				System.out.println("MISMATCH -- ADAPTIVE SCORE OF " + v + ": " + PRs.get(v) + " " + plainPRs.get(v) + " " + testPRs.get(v));
+				passed = false;
+			}
+		}
+		
+		// the textbook scores sum up to 1, in float they differ by rounding
+		// only, and the random walks estimate them up to the random error
+		System.out.println("Calculating textbook Page-Rank scores...");
+		HashMap<Integer, Double> standard = graph.getStandardPageRank(false);
+		HashMap<Integer, Double> single = graph.getStandardPageRank(true);
+		HashMap<Integer, Double> approx = graph.getApproximatePageRank(1000, 4);
+		double sum = 0;
+		double singleErr = 0;
+		double approxErr = 0;
+		for(int v : standard.keySet()) {
+			sum += standard.get(v);
+			singleErr += Math.abs(single.get(v) - standard.get(v));
+			approxErr += Math.abs(approx.get(v) - standard.get(v));
+		}
+		System.out.println("Sum of scores: "+sum+", float difference: "+singleErr+", random walk difference: "+approxErr);
+		if (Math.abs(sum - 1.0) > 1.0e-6) {
+			System.out.println("MISMATCH -- TEXTBOOK SCORES DO NOT SUM UP TO 1");
+			passed = false;
+		}
+		if (singleErr > 1.0e-4) {
+			System.out.println("MISMATCH -- FLOAT SCORES DIFFER FROM DOUBLE SCORES");
+			passed = false;
+		}
+		if (approxErr > 0.05) {
+			System.out.println("MISMATCH -- RANDOM WALK SCORES DIFFER FROM TEXTBOOK SCORES");
+			passed = false;
+		}
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("PAGE RANK MODES TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean testPersonalizedPageRank(Graph graph) {
+		// test that the forward push keeps all probability mass in the scores
+		// and residuals, that the scores are centred on the seed and only 
+		// reach the vertices reachable from it, that a smaller threshold only
+		// moves mass out of the residuals, and that the push on the edge sets
+		// and on the CSR snapshot (which push in another order) agree up to
+		// their residuals
+		System.out.println("ENTERING PERSONALIZED PAGE RANK TEST");
+		// pass yes or not, to be returned
+		boolean passed = true;
+		double eps = 1.0e-7;
+		
+		// seed: the first vertex with outgoing edges
+		int seed = graph.getVertexId(0);
+		for (int v = 0; graph.getOutDegree(seed) == 0; v++) {
+			seed = graph.getVertexId(v);
+		}
+		System.out.println("Calculating personalized Page-Rank scores of vertex "+seed+"...");
+		PersonalizedPageRank push = new PersonalizedPageRank(graph, eps, PageRank.DAMP);
+		HashMap<Integer, Double> PPRs = push.calculate(seed);
+		double residual = push.getResidual();
+		PersonalizedPageRank tightPush = new PersonalizedPageRank(graph, 1.0e-13, PageRank.DAMP);
+		HashMap<Integer, Double> tight = tightPush.calculate(seed);
+		PersonalizedPageRank csrPush = new PersonalizedPageRank(graph.getCSR(true), eps, PageRank.DAMP);
+		HashMap<Integer, Double> csrPRs = csrPush.calculate(seed);
+		
+		// the mass of the scores and residuals is 1
+		double sum = 0;
+		for (double score : PPRs.values()) {
+			sum += score;
+		}
+		System.out.println("Pushes: "+push.getPushes()+", sum of scores: "+sum+", residual: "+residual);
+		if (Math.abs(sum + residual - 1.0) > 1.0e-9) {
+			System.out.println("MISMATCH -- SCORES AND RESIDUALS SUM UP TO " + (sum + residual));
+			passed = false;
+		}
+		
+		// the seed keeps at least the restart probability and has the highest
+		// score, all scores belong to vertices reachable from the seed
+		HashMap<Integer, HashSet<Integer>> edges = graph.exportGraph();
+		HashSet<Integer> reached = new HashSet<Integer>();
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		reached.add(seed);
+		queue.add(seed);
+		while (!queue.isEmpty()) {
+			for (int t : edges.get(queue.poll())) {
+				if (reached.add(t)) {
+					queue.add(t);
+				}
+			}
+		}
+		if (PPRs.get(seed) < 1.0 - PageRank.DAMP) {
+			System.out.println("MISMATCH -- SCORE OF THE SEED: " + PPRs.get(seed));
+			passed = false;
+		}
+		for (int v : PPRs.keySet()) {
+			if (PPRs.get(v) > PPRs.get(seed)) {
+				System.out.println("MISMATCH -- SCORE OF " + v + " ABOVE THE SEED: " + PPRs.get(v) + " " + PPRs.get(seed));
+				passed = false;
+			}
+			if (!reached.contains(v)) {
+				System.out.println("MISMATCH -- SCORE OF UNREACHABLE VERTEX " + v);
+				passed = false;
+			}
+		}
+		
+		// p never overestimates, and the scores of the smaller threshold are
+		// at most the residual above them
+		double error = 0;
+		for (int v : tight.keySet()) {
+			double score = PPRs.getOrDefault(v, 0.0);
+			if (score > tight.get(v) + 1.0e-12) {
+				System.out.println("MISMATCH -- SCORE OF " + v + " ABOVE THE TIGHT SCORE: " + score + " " + tight.get(v));
+				passed = false;
+			}
+			error += tight.get(v) - score;
+		}
+		if (error > residual + 1.0e-9) {
+			System.out.println("MISMATCH -- ERROR " + error + " ABOVE THE RESIDUAL " + residual);
+			passed = false;
+		}
+		
+		// the CSR snapshot has the same edges as the edge sets, so both 
+		// scores are at most their residuals below the exact ones
+		double difference = 0;
+		for (int v : reached) {
+			difference += Math.abs(csrPRs.getOrDefault(v, 0.0) - PPRs.getOrDefault(v, 0.0));
+		}
+		if (difference > residual + csrPush.getResidual() + 1.0e-9) {
+			System.out.println("MISMATCH -- CSR SCORES DIFFER BY " + difference);
+			passed = false;
+		}
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("PERSONALIZED PAGE RANK TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean testDynamicPageRank(Graph graph) {
+		// build a copy of graph with half of its edges, let a dynamic Page 
+		// Rank listen to it, then add the other edges (one by one and as a 
+		// batch) and a new vertex with edges. After each step the scores must 
+		// be within a sum of absolute errors of 1.0e-5 of the textbook scores
+		// calculated from scratch with a tight convergence criterion.
+		System.out.println("ENTERING DYNAMIC PAGE RANK TEST");
+		// pass yes or not, to be returned
+		boolean passed = true;
+		
+		HashMap<Integer, HashSet<Integer>> edges = graph.exportGraph();
+		int numEdges = graph.getEdgeCount();
+		int[] from = new int[numEdges];
+		int[] to = new int[numEdges];
+		int n = 0;
+		for (int source : edges.keySet()) {
+			for (int target : edges.get(source)) {
+				from[n] = source;
+				to[n++] = target;
+			}
+		}
+		Graph dynamic = new Graph();
+		for (int v : edges.keySet()) {
+			dynamic.addVertex(v);
+		}
+		for (int i = 0; i < n / 2; i++) {
+			dynamic.addEdge(from[i], to[i]);
+		}
+		DynamicPageRank pageRank = new DynamicPageRank(dynamic, 1.0e-9, PageRank.DAMP);
+		passed &= compareDynamicPageRank(dynamic, pageRank, "HALF OF THE EDGES");
+		
+		// the next quarter one by one through the listener
+		for (int i = n / 2; i < 3 * n / 4; i++) {
+			dynamic.addEdge(from[i], to[i]);
+		}
+		passed &= compareDynamicPageRank(dynamic, pageRank, "SINGLE EDGES");
+		
+		// the rest as one batch, with each edge twice
+		int[] batchFrom = new int[2 * (n - 3 * n / 4)];
+		int[] batchTo = new int[batchFrom.length];
+		for (int i = 0; i < batchFrom.length; i++) {
+			batchFrom[i] = from[3 * n / 4 + i / 2];
+			batchTo[i] = to[3 * n / 4 + i / 2];
+		}
+		dynamic.addEdges(batchFrom, batchTo, batchFrom.length);
+		passed &= compareDynamicPageRank(dynamic, pageRank, "BATCH");
+		if (dynamic.getEdgeCount() != numEdges) {
+			System.out.println("MISMATCH -- EDGE COUNT: " + dynamic.getEdgeCount() + " " + numEdges);
+			passed = false;
+		}
+		
+		// a new vertex that points to and is pointed at by the first vertex
+		int newVertex = -1;
+		for (int v : edges.keySet()) {
+			newVertex = Math.max(newVertex, v + 1);
+		}
+		dynamic.addVertex(newVertex);
+		dynamic.addEdge(newVertex, from[0]);
+		dynamic.addEdge(from[0], newVertex);
+		passed &= compareDynamicPageRank(dynamic, pageRank, "NEW VERTEX");
+		System.out.println("Pushes: "+pageRank.getPushes());
+		pageRank.close();
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("DYNAMIC PAGE RANK TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean compareDynamicPageRank(Graph graph, DynamicPageRank pageRank, String step) {
+		// compare the dynamic scores with the textbook scores from scratch
+		HashMap<Integer, Double> scores = pageRank.getPageRank();
+		HashMap<Integer, Double> exact = new SparsePageRank(graph.getCSR(true), 1.0e-20, PageRank.DAMP).calculatePageRank();
+		double error = 0;
+		for (int v : exact.keySet()) {
+			error += Math.abs(scores.getOrDefault(v, 0.0) - exact.get(v));
+		}
+		System.out.println("Error after " + step.toLowerCase() + ": " + error);
+		if (scores.size() != exact.size() || error > 1.0e-5) {
+			System.out.println("MISMATCH -- DYNAMIC SCORES AFTER " + step + " DIFFER BY " + error);
+			return false;
+		}
+		return true;
+	}
+	
+	private boolean testVertexDictionary() {
+		// add random sparse vertex IDs (with repeats, 0, negative IDs and the 
+		// ends of the int range) to a dictionary and compare the dense indices
+		// with the order of first appearance, the round trip ID -> index -> 
+		// ID, unknown IDs, an independent copy and a dictionary built from 
+		// the array of IDs (which must reject duplicates)
+		System.out.println("ENTERING VERTEX DICTIONARY TEST");
+		// pass yes or not, to be returned
+		boolean passed = true;
+		
+		Random random = new Random(13);
+		VertexDictionary dictionary = new VertexDictionary();
+		HashMap<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		for (int i = 0; i < 100000; i++) {
+			int id;
+			if (i < 4) {
+				id = new int[] {0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE}[i];
+			}
+			else {
+				id = i % 3 == 0 ? dictionary.getId(random.nextInt(dictionary.size())) : random.nextInt();
+			}
+			if (!expected.containsKey(id)) {
+				expected.put(id, expected.size());
+			}
+			int dense = dictionary.add(id);
+			if (dense != expected.get(id)) {
+				System.out.println("MISMATCH -- DENSE INDEX OF " + id + ": " + dense + " " + expected.get(id));
+				passed = false;
+			}
+		}
+		if (dictionary.size() != expected.size()) {
+			System.out.println("MISMATCH -- SIZE: " + dictionary.size() + " " + expected.size());
+			passed = false;
+		}
+		for (int id : expected.keySet()) {
+			int dense = dictionary.get(id);
+			if (dense != expected.get(id) || dictionary.getId(dense) != id || !dictionary.contains(id)) {
+				System.out.println("MISMATCH -- ROUND TRIP OF " + id + ": " + dense);
+				passed = false;
+			}
+		}
+		for (int i = 0; i < 1000; i++) {
+			int id = random.nextInt();
+			if (!expected.containsKey(id) && (dictionary.get(id) != -1 || dictionary.contains(id))) {
+				System.out.println("MISMATCH -- UNKNOWN ID " + id + " FOUND");
+				passed = false;
+			}
+		}
+		
+		// a copy gets new IDs without changing the original
+		VertexDictionary copy = dictionary.copy();
+		int size = dictionary.size();
+		int newId = 0;
+		while (expected.containsKey(newId)) {
+			newId++;
+		}
+		if (copy.add(newId) != size || copy.get(newId) != size || dictionary.get(newId) != -1 
+				|| dictionary.size() != size || copy.get(Integer.MIN_VALUE) != expected.get(Integer.MIN_VALUE)) {
+			System.out.println("MISMATCH -- COPY NOT INDEPENDENT");
+			passed = false;
+		}
+		
+		// built from the IDs in dense order
+		int[] ids = Arrays.copyOf(dictionary.getIds(), size);
+		VertexDictionary fromIds = new VertexDictionary(ids);
+		for (int v = 0; v < size; v++) {
+			if (fromIds.get(ids[v]) != v || fromIds.getId(v) != ids[v]) {
+				System.out.println("MISMATCH -- DICTIONARY FROM IDS AT " + v);
+				passed = false;
+				break;
+			}
+		}
+		ids[size-1] = ids[0];
+		try {
+			new VertexDictionary(ids);
+			System.out.println("MISMATCH -- DUPLICATE ID ACCEPTED");
+			passed = false;
+		} catch (IllegalArgumentException e) {
+		}
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("VERTEX DICTIONARY TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean testIntSet() {
+		// compare random adds, removes and lookups of an IntSet (keys with 
+		// many collisions, including 0, which has no slot) with a HashSet, 
+		// remove every key of a cluster of colliding keys that wraps around 
+		// the end of the table in random orders (backward shift deletion),
+		// and grow a set from no table to 100000 keys, one by one and in 
+		// batches with addAll()
+		System.out.println("ENTERING INT SET TEST");
+		// pass yes or not, to be returned
+		boolean passed = true;
+		Random random = new Random(14);
+		
+		IntSet set = new IntSet();
+		HashSet<Integer> expected = new HashSet<Integer>();
+		for (int i = 0; i < 200000 && passed; i++) {
+			int key = random.nextInt(250) - 50;
+			int operation = random.nextInt(3);
+			boolean result;
+			boolean expectedResult;
+			if (operation == 0) {
+				result = set.add(key);
+				expectedResult = expected.add(key);
+			}
+			else if (operation == 1) {
+				result = set.remove(key);
+				expectedResult = expected.remove(key);
+			}
+			else {
+				result = set.contains(key);
+				expectedResult = expected.contains(key);
+			}
+			if (result != expectedResult || set.size() != expected.size()) {
+				System.out.println("MISMATCH -- OPERATION " + operation + " ON " + key + " AT STEP " + i + ": " + result);
+				passed = false;
+			}
+		}
+		
+		// a cluster of keys with the home slots length-2, length-1 and 0 
+		// of a table that is not rehashed for them
+		int length = IntSet.tableSize(64);
+		int[] cluster = new int[12];
+		int found = 0;
+		for (int key = 1; found < cluster.length; key++) {
+			int home = IntSet.hash(key) & (length - 1);
+			if (home == (length - 2 + found / 4) % length) {
+				cluster[found++] = key;
+			}
+		}
+		for (int round = 0; round < 100 && passed; round++) {
+			set = new IntSet(64);
+			for (int key : cluster) {
+				set.add(key);
+			}
+			LinkedList<Integer> left = new LinkedList<Integer>();
+			for (int key : cluster) {
+				left.add(key);
+			}
+			while (!left.isEmpty()) {
+				int key = left.remove(random.nextInt(left.size()));
+				boolean ok = set.remove(key) && !set.contains(key) && set.size() == left.size();
+				for (int other : left) {
+					ok &= set.contains(other);
+				}
+				if (!ok) {
+					System.out.println("MISMATCH -- CLUSTER AFTER REMOVING " + key + ", KEYS LEFT " + left);
+					passed = false;
+					break;
+				}
+			}
+		}
+		
+		// growth from no table, then batches with repeats and known keys
+		set = new IntSet();
+		expected.clear();
+		for (int key = -50000; key < 50000; key++) {
+			set.add(key * 7);
+			expected.add(key * 7);
+		}
+		for (int b = 0; b < 10; b++) {
+			int[] batch = new int[20000];
+			for (int i = 0; i < batch.length; i++) {
+				batch[i] = i % 4 == 0 ? 7 * (random.nextInt(100000) - 50000) : random.nextInt(1000000);
+			}
+			int[] original = batch.clone();
+			// the new keys in their order
+			int[] added = new int[batch.length];
+			int numAdded = 0;
+			for (int i = 10; i < 19990; i++) {
+				if (expected.add(original[i])) {
+					added[numAdded++] = original[i];
+				}
+			}
+			int count = set.addAll(batch, 10, 19990);
+			boolean ok = count == numAdded && set.size() == expected.size();
+			for (int i = 0; ok && i < count; i++) {
+				ok = batch[10 + i] == added[i];
+			}
+			if (!ok) {
+				System.out.println("MISMATCH -- BATCH " + b + " ADDED " + count + " NEW KEYS, EXPECTED " + numAdded);
+				passed = false;
+			}
+		}
+		int[] keys = set.toArray();
+		HashSet<Integer> copied = new HashSet<Integer>();
+		for (int key : keys) {
+			copied.add(key);
+		}
+		if (keys.length != expected.size() || !copied.equals(expected)) {
+			System.out.println("MISMATCH -- KEYS AFTER GROWING: " + keys.length + " " + expected.size());
+			passed = false;
+		}
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("INT SET TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean testIntMaps() {
+		// compare random puts, additions, removes and lookups of an IntIntMap
+		// and an IntDoubleMap (keys with many collisions, including 0) with a
+		// HashMap, then the keys, and clearing the maps
+		System.out.println("ENTERING INT MAPS TEST");
+		// pass yes or not, to be returned
+		boolean passed = true;
+		Random random = new Random(15);
+		
+		IntIntMap ints = new IntIntMap();
+		IntDoubleMap doubles = new IntDoubleMap();
+		HashMap<Integer, Integer> expectedInts = new HashMap<Integer, Integer>();
+		HashMap<Integer, Double> expectedDoubles = new HashMap<Integer, Double>();
+		for (int i = 0; i < 200000 && passed; i++) {
+			int key = random.nextInt(250) - 50;
+			int value = random.nextInt(1000) - 500;
+			int operation = random.nextInt(4);
+			boolean ok;
+			if (operation == 0) {
+				ints.put(key, value);
+				doubles.put(key, value / 8.0);
+				expectedInts.put(key, value);
+				expectedDoubles.put(key, value / 8.0);
+				ok = true;
+			}
+			else if (operation == 1) {
+				int sum = expectedInts.getOrDefault(key, 0) + value;
+				double doubleSum = expectedDoubles.getOrDefault(key, 0.0) + value / 8.0;
+				expectedInts.put(key, sum);
+				expectedDoubles.put(key, doubleSum);
+				ok = ints.addTo(key, value) == sum && doubles.addTo(key, value / 8.0) == doubleSum;
+			}
+			else if (operation == 2) {
+				boolean removed = expectedInts.remove(key) != null;
+				expectedDoubles.remove(key);
+				ok = ints.remove(key) == removed && doubles.remove(key) == removed;
+			}
+			else {
+				boolean contained = expectedInts.containsKey(key);
+				ok = ints.containsKey(key) == contained && doubles.containsKey(key) == contained
+						&& ints.getOrDefault(key, -1000) == expectedInts.getOrDefault(key, -1000)
+						&& doubles.getOrDefault(key, -1000.0) == expectedDoubles.getOrDefault(key, -1000.0);
+			}
+			if (!ok || ints.size() != expectedInts.size() || doubles.size() != expectedDoubles.size()) {
+				System.out.println("MISMATCH -- OPERATION " + operation + " ON " + key + " AT STEP " + i);
+				passed = false;
+			}
+		}
+		
+		// all keys with their values
+		int[] intKeys = ints.keys();
+		int[] doubleKeys = doubles.keys();
+		if (intKeys.length != expectedInts.size() || doubleKeys.length != expectedDoubles.size()) {
+			System.out.println("MISMATCH -- NUMBER OF KEYS: " + intKeys.length + " " + doubleKeys.length);
+			passed = false;
+		}
+		for (int key : intKeys) {
+			if (!expectedInts.containsKey(key) || ints.getOrDefault(key, 0) != expectedInts.get(key)) {
+				System.out.println("MISMATCH -- INT KEY " + key);
+				passed = false;
+			}
+		}
+		for (int key : doubleKeys) {
+			if (!expectedDoubles.containsKey(key) || doubles.getOrDefault(key, 0.0) != expectedDoubles.get(key)) {
+				System.out.println("MISMATCH -- DOUBLE KEY " + key);
+				passed = false;
+			}
+		}
+		
+		ints.clear();
+		doubles.clear();
+		if (!ints.isEmpty() || !doubles.isEmpty() || ints.containsKey(0) || doubles.containsKey(1)) {
+			System.out.println("MISMATCH -- MAPS NOT EMPTY AFTER CLEAR");
+			passed = false;
+		}
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("INT MAPS TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean testEdgeParser() {
+		// the smallest and largest int are parsed as vertex IDs, a number 
+		// beyond them throws a NumberFormatException with its position in
+		// the file, with one thread and with several
+		System.out.println("ENTERING EDGE PARSER TEST");
+		// pass yes or not, to be returned
+		boolean passed = true;
+		
+		Path file;
+		try {
+			file = Files.createTempFile("edges", ".txt");
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		String valid = "# comment 99999999999\n1 2\n-2147483648 2147483647\n";
+		String[] invalid = new String[] {"2147483648 1\n", "1 -2147483649\n", "5 12345678901234567890\n"};
+		// position of the digit that leaves the int range in each line
+		int[] positions = new int[] {9, 12, 12};
+		try {
+			for (int threads : new int[] {1, 4}) {
+				Files.write(file, valid.getBytes());
+				EdgeList edges = GraphLoader.loadEdges(file.toString(), threads);
+				if (edges.size() != 2 || edges.getFrom()[1] != Integer.MIN_VALUE || edges.getTo()[1] != Integer.MAX_VALUE) {
+					System.out.println("MISMATCH -- EDGES AT THE ENDS OF THE INT RANGE WITH " + threads + " THREADS");
+					passed = false;
+				}
+				for (int i = 0; i < invalid.length; i++) {
+					String line = invalid[i];
+					Files.write(file, (valid + line).getBytes());
+					try {
+						GraphLoader.loadEdges(file.toString(), threads);
+						System.out.println("MISMATCH -- NOT REJECTED WITH " + threads + " THREADS: " + line.trim());
+						passed = false;
+					} catch (NumberFormatException e) {
+						System.out.println("Rejected: " + e.getMessage());
+						if (!e.getMessage().contains("at byte " + (valid.length() + positions[i]) + " ")) {
+							System.out.println("MISMATCH -- POSITION NOT IN THE MESSAGE: " + (valid.length() + positions[i]));
+							passed = false;
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			passed = false;
+		} finally {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("EDGE PARSER TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean testSnapshot(Graph graph) {
+		// save graph as a snapshot with and without the undirected edges, 
+		// load both and compare the vertex IDs (in dense index order) and the
+		// edges, use a loaded graph before and after its edge sets are built 
+		// (materialize()), and check that a wrong magic number, a wrong 
+		// version and a truncated file are rejected with an IOException
+		System.out.println("ENTERING SNAPSHOT TEST");
+		// pass yes or not, to be returned
+		boolean passed = true;
+		
+		Path file;
+		Path corrupt;
+		try {
+			file = Files.createTempFile("graph", ".snapshot");
+			corrupt = Files.createTempFile("corrupt", ".snapshot");
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		try {
+			for (boolean withUndirected : new boolean[] {true, false}) {
+				graph.saveSnapshot(file.toString(), withUndirected);
+				Graph loaded = new Graph();
+				GraphLoader.loadSnapshot(loaded, file.toString());
+				String kind = withUndirected ? "WITH UNDIRECTED EDGES" : "WITHOUT UNDIRECTED EDGES";
+				
+				// still only the CSR snapshot
+				passed &= compareSnapshot(graph, loaded, kind);
+				HashMap<Integer, Double> PRs = graph.getPageRank();
+				HashMap<Integer, Double> loadedPRs = loaded.getPageRank();
+				for (int v : PRs.keySet()) {
+					if (Math.abs(PRs.get(v) - loadedPRs.get(v)) > 1.0e-12) {
+						System.out.println("MISMATCH -- PAGE RANK OF " + v + " " + kind + ": " + loadedPRs.get(v) + " " + PRs.get(v));
+						passed = false;
+					}
+				}
+				
+				// a new edge builds the edge sets from the snapshot, then the
+				// graph must be the original one plus this edge
+				int first = graph.getVertexId(0);
+				int newVertex = -1;
+				for (int v = 0; v < graph.getVertexCount(); v++) {
+					newVertex = Math.max(newVertex, graph.getVertexId(v) + 1);
+				}
+				loaded.addVertex(newVertex);
+				loaded.addEdge(first, newVertex);
+				HashMap<Integer, HashSet<Integer>> edges = loaded.exportGraph();
+				if (!edges.get(first).remove(newVertex) || !edges.remove(newVertex).isEmpty()
+						|| !edges.equals(graph.exportGraph())
+						|| loaded.getEdgeCount() != graph.getEdgeCount() + 1
+						|| loaded.getUndirEdgeCount() != graph.getUndirEdgeCount() + 2) {
+					System.out.println("MISMATCH -- EDGES AFTER MATERIALIZING " + kind);
+					passed = false;
+				}
+			}
+			
+			// corrupt copies of the last file
+			byte[] bytes = Files.readAllBytes(file);
+			byte[] badMagic = bytes.clone();
+			badMagic[0]++;
+			byte[] badVersion = bytes.clone();
+			badVersion[4] = (byte) (GraphSnapshot.VERSION + 1);
+			byte[] truncated = Arrays.copyOf(bytes, bytes.length - 4);
+			String[] names = new String[] {"MAGIC NUMBER", "VERSION", "TRUNCATED FILE"};
+			byte[][] contents = new byte[][] {badMagic, badVersion, truncated};
+			for (int i = 0; i < names.length; i++) {
+				Files.write(corrupt, contents[i]);
+				Graph loaded = new Graph();
+				try {
+					GraphLoader.loadSnapshot(loaded, corrupt.toString());
+					System.out.println("MISMATCH -- " + names[i] + " NOT REJECTED");
+					passed = false;
+				} catch (IOException e) {
+					System.out.println("Rejected: " + e.getMessage());
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			passed = false;
+		} finally {
+			try {
+				Files.deleteIfExists(file);
+				Files.deleteIfExists(corrupt);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("SNAPSHOT TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean compareSnapshot(Graph graph, Graph loaded, String kind) {
+		// compare the vertex IDs, counts and edges of a loaded graph with the
+		// saved one
+		boolean passed = true;
+		if (loaded.getVertexCount() != graph.getVertexCount() || loaded.getEdgeCount() != graph.getEdgeCount()
+				|| loaded.getUndirEdgeCount() != graph.getUndirEdgeCount()) {
+			System.out.println("MISMATCH -- COUNTS " + kind + ": " + loaded.getVertexCount() + " " + loaded.getEdgeCount() 
+					+ " " + loaded.getUndirEdgeCount());
+			return false;
+		}
+		for (int v = 0; v < graph.getVertexCount(); v++) {
+			if (loaded.getVertexId(v) != graph.getVertexId(v)) {
+				System.out.println("MISMATCH -- VERTEX ID OF INDEX " + v + " " + kind + ": " + loaded.getVertexId(v));
+				passed = false;
+			}
+			int id = graph.getVertexId(v);
+			if (loaded.getOutDegree(id) != graph.getOutDegree(id)) {
+				System.out.println("MISMATCH -- OUT-DEGREE OF " + id + " " + kind + ": " + loaded.getOutDegree(id));
+				passed = false;
+			}
+		}
+		// (the rows are compared sorted, without building the edge sets)
+		for (boolean directed : new boolean[] {true, false}) {
+			CSRGraph csr = graph.getCSR(directed);
+			CSRGraph loadedCSR = loaded.getCSR(directed);
+			for (int v = 0; v < csr.getVertexCount(); v++) {
+				int[] row = Arrays.copyOfRange(csr.getTargets(), csr.getOffsets()[v], csr.getOffsets()[v+1]);
+				int[] loadedRow = Arrays.copyOfRange(loadedCSR.getTargets(), loadedCSR.getOffsets()[v], loadedCSR.getOffsets()[v+1]);
+				Arrays.sort(row);
+				Arrays.sort(loadedRow);
+				if (!Arrays.equals(row, loadedRow)) {
+					System.out.println("MISMATCH -- " + (directed ? "" : "UNDIRECTED ") + "EDGES OF " + csr.getId(v) + " " + kind);
+					passed = false;
+				}
+			}
+		}
+		return passed;
+	}
+	
+	private boolean testTopK(Graph graph) {
+		// compare the top k in-degree centralities, Page Rank scores and edge
+		// betweenness centralities with the k highest of all scores sorted,
+		// for k = 0, 1, 10, all and more than all (the same scores in the 
+		// same order, and each ID with its own score, ties in any order)
+		System.out.println("ENTERING TOP K TEST");
+		// pass yes or not, to be returned
+		boolean passed = true;
+		
+		HashMap<Integer, Double> IDCs = graph.getInDegreeCentrality();
+		HashMap<Integer, Double> PRs = graph.getPageRank();
+		GirvanNewman gn = new GirvanNewman(graph.getCSR(false));
+		gn.brandesEdgeBetweennessCentrality();
+		HashMap<Integer, HashMap<Integer, Double>> EBCs = gn.getEBC();
+		double[] sortedIDCs = sortedScores(IDCs.values());
+		double[] sortedPRs = sortedScores(PRs.values());
+		LinkedList<Double> ebcValues = new LinkedList<Double>();
+		for (int source : EBCs.keySet()) {
+			for (int target : EBCs.get(source).keySet()) {
+				if (source < target) {
+					ebcValues.add(EBCs.get(source).get(target));
+				}
+			}
+		}
+		double[] sortedEBCs = sortedScores(ebcValues);
+		
+		int[] ks = new int[] {0, 1, 10, graph.getVertexCount(), sortedEBCs.length, Integer.MAX_VALUE};
+		for (int k : ks) {
+			System.out.println("Top " + k + "...");
+			passed &= compareTopK(graph.getTopInDegreeCentrality(k), IDCs, sortedIDCs, k, "IN-DEGREE CENTRALITY");
+			passed &= compareTopK(graph.getTopPageRank(k), PRs, sortedPRs, k, "PAGE RANK");
+			
+			List<double[]> topEdges = graph.getTopEdgeBetweenness(k);
+			int size = Math.min(k, sortedEBCs.length);
+			if (topEdges.size() != size) {
+				System.out.println("MISMATCH -- NUMBER OF TOP " + k + " EDGES: " + topEdges.size());
+				passed = false;
+				continue;
+			}
+			for (int i = 0; i < size; i++) {
+				double[] edge = topEdges.get(i);
+				double ebc = EBCs.get((int) edge[1]).get((int) edge[2]);
+				if (Math.abs(edge[0] - sortedEBCs[i]) > 1.0e-9 || Math.abs(edge[0] - ebc) > 1.0e-9) {
+					System.out.println("MISMATCH -- TOP " + k + " EDGE " + i + ": " + (int) edge[1] + "-" + (int) edge[2] 
+							+ " " + edge[0] + " " + ebc + " " + sortedEBCs[i]);
+					passed = false;
+				}
+			}
+		}
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("TOP K TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private static double[] sortedScores(Collection<Double> scores) {
+		// the scores sorted from the highest to the lowest
+		double[] sorted = new double[scores.size()];
+		int i = 0;
+		for (double score : scores) {
+			sorted[i++] = score;
+		}
+		Arrays.sort(sorted);
+		for (i = 0; i < sorted.length / 2; i++) {
+			double swap = sorted[i];
+			sorted[i] = sorted[sorted.length - 1 - i];
+			sorted[sorted.length - 1 - i] = swap;
+		}
+		return sorted;
+	}
+	
+	private boolean compareTopK(Map<Integer, Double> top, HashMap<Integer, Double> scores, double[] sorted, int k, String name) {
+		// compare the top k of a score with the k highest of all scores sorted
+		boolean passed = true;
+		int size = Math.min(k, sorted.length);
+		if (top.size() != size) {
+			System.out.println("MISMATCH -- NUMBER OF TOP " + k + " " + name + ": " + top.size());
+			return false;
+		}
+		int i = 0;
+		for (int v : top.keySet()) {
+			if (Math.abs(top.get(v) - sorted[i]) > 1.0e-12 || Math.abs(top.get(v) - scores.get(v)) > 1.0e-12) {
+				System.out.println("MISMATCH -- TOP " + k + " " + name + " " + i + ": " + v + " " + top.get(v) 
+						+ " " + scores.get(v) + " " + sorted[i]);
+				passed = false;
+			}
+			i++;
+		}
+		return passed;
+	}
+	
 	private boolean testTarjanSCC(Graph graph, String filename) {
-		System.out.println("ENTERING TARJAN SCC TEST");
+		return testTarjanSCC(graph, filename, 1);
+	}
+	
+	private boolean testTarjanSCC(Graph graph, String filename, int threads) {
+		// threads > 1 tests the parallel forward-backward algorithm instead
+		System.out.println("ENTERING TARJAN SCC TEST WITH " + threads + " THREADS");
 		// pass yes or not, to be returned
 		boolean passed = true;
 		
@@ -401,7 +1370,7 @@ public class GraphTest {
         
         // get the SCCs (as calculated by the Tarjan algorithm) and store 
         // them in hash sets as well
-        List<Graph> graphSCCs = graph.getSCCs();
+        List<Graph> graphSCCs = graph.getSCCs(true, threads);
         HashSet<HashSet<Integer>> SCCs = new HashSet<HashSet<Integer>>();
         
         for(Graph g : graphSCCs) {
@@ -538,9 +1507,9 @@ public class GraphTest {
 		return passed;
 	}
 	
-	private boolean testEdgeBetweennessCentrality(Graph graph, String filename) {
+	private boolean testEdgeBetweennessCentrality(Graph graph, String filename, boolean brandes) {
 		// test if calculated edge betweenness is correct for all edges 
-		// 
+		// (brandes -> calculated with the Brandes algorithm)
 		System.out.println("ENTERING EBC TEST");
 		boolean passed = true;
 		
@@ -579,8 +1548,13 @@ public class GraphTest {
 			
 		// get the calculated EBCs from the GirvanNewman class 
         HashMap<Integer, HashSet<Integer>> edges = graph.exportUndirGraph();
-		GirvanNewman gm = new GirvanNewman(edges);
-		gm.edgeBetweennessCentrality();
+		GirvanNewman gm = new GirvanNewman(edges,brandes);
+		if (brandes) {
+			gm.brandesEdgeBetweennessCentrality();
+		}
+		else {
+			gm.edgeBetweennessCentrality();
+		}
 		HashMap<Integer, HashMap<Integer, Double>> EBCs = gm.getEBC();
 		
         // check if the calculated and test EBCs match
@@ -709,4 +1683,404 @@ public class GraphTest {
         }
 		return passed;
 	}
+	
+	private boolean testGetCommunities(Graph graph, int k, int e) {
+		// test to check the communities found by removing e edges per iteration
+		// with the incremental Brandes EBC, compared to the communities found
+		// with the EBC from all shortest paths
+		System.out.println("ENTERING GIRVAN NEWMANN COMMUNITY TEST WITH " + e + " EDGES PER ITERATION");
+		boolean passed = true;
+		
+		HashSet<HashSet<Integer>> coms = new HashSet<HashSet<Integer>>();
+		for(Graph g : graph.getCommunities(k, e)) {
+			coms.add(new HashSet<Integer>(g.exportUndirGraph().keySet()));
+		}
+		HashSet<HashSet<Integer>> testComs = new HashSet<HashSet<Integer>>();
+		for(Graph g : graph.getCommunities(k, e, false)) {
+			testComs.add(new HashSet<Integer>(g.exportUndirGraph().keySet()));
+		}
+		System.out.println("Communities found: "+coms.size()+", test communities: "+testComs.size());
+		
+		if (!coms.equals(testComs)) {
+			passed = false;
+			System.out.println("MISMATCH -- NOT ALL COMMUNITIES SEEM TO MATCH");
+		}
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("GIRAVAN NEWMANN COMMUNITY DETECTION TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean testIncrementalEBC(Graph graph, int iterations) {
+		// test to check the EBCs of the incremental Girvan Newman algorithm, 
+		// which are updated after each removed edge, against the EBCs of a
+		// new Brandes calculation on the remaining edges
+		System.out.println("ENTERING INCREMENTAL EDGE BETWEENNESS CENTRALITY TEST");
+		boolean passed = true;
+		
+		GirvanNewman gn = new GirvanNewman(graph.exportUndirGraph(), true);
+		gn.setIncremental(true);
+		HashMap<Integer, HashSet<Integer>> edges = null;
+		for (int i = 0; i <= iterations; i++) {
+			// getEBC() returns the EBCs the edge was chosen by, i.e. the ones
+			// updated after the last removal
+			HashMap<Integer, HashSet<Integer>> newEdges = gn.removeEdge();
+			if (edges != null) {
+				GirvanNewman test = new GirvanNewman(edges, true);
+				test.brandesEdgeBetweennessCentrality();
+				HashMap<Integer, HashMap<Integer, Double>> EBCs = gn.getEBC();
+				HashMap<Integer, HashMap<Integer, Double>> testEBCs = test.getEBC();
+				if (!EBCs.keySet().equals(testEBCs.keySet())) {
+					passed = false;
+					System.out.println("MISMATCH -- NOT THE SAME EDGES AFTER ITERATION "+i);
+					break;
+				}
+				for (int source : testEBCs.keySet()) {
+					if (!EBCs.get(source).keySet().equals(testEBCs.get(source).keySet())) {
+						passed = false;
+						System.out.println("MISMATCH -- NOT THE SAME EDGES OF "+source+" AFTER ITERATION "+i);
+						continue;
+					}
+					for (int target : testEBCs.get(source).keySet()) {
+						double ebc = EBCs.get(source).get(target);
+						double testEBC = testEBCs.get(source).get(target);
+						if (Math.abs(ebc - testEBC) > 1.0e-9 * Math.max(1.0, testEBC)) {
+							passed = false;
+							System.out.println("MISMATCH -- EBC OF "+source+" "+target+": "+ebc+" "+testEBC);
+						}
+					}
+				}
+			}
+			edges = newEdges;
+		}
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("INCREMENTAL EDGE BETWEENNESS CENTRALITY TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean testConcurrentGraph() {
+		// test that the readers of a concurrent graph only see complete epochs
+		// that grow with every number while two writers add edges, and that
+		// all edges become visible without calling publish()
+		System.out.println("ENTERING CONCURRENT GRAPH TEST");
+		boolean passed = true;
+		
+		// random edges between 2000 vertices for each writer
+		int numEdges = 20000;
+		Random random = new Random(42);
+		int[][] from = new int[2][numEdges];
+		int[][] to = new int[2][numEdges];
+		Graph testGraph = new Graph();
+		HashSet<Long> testEdges = new HashSet<Long>();
+		for (int w = 0; w < 2; w++) {
+			for (int i = 0; i < numEdges; i++) {
+				from[w][i] = random.nextInt(2000);
+				to[w][i] = random.nextInt(2000);
+				testEdges.add((long) from[w][i] << 32 | to[w][i]);
+			}
+			testGraph.addEdges(from[w], to[w], numEdges);
+		}
+		
+		ConcurrentGraph graph = new ConcurrentGraph();
+		graph.setPublishDelay(5);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		AtomicBoolean failed = new AtomicBoolean(false);
+		
+		// the first writer adds batches of 500 edges, the second one single edges
+		Thread[] writers = new Thread[2];
+		writers[0] = new Thread(() -> {
+			for (int i = 0; i < numEdges; i += 500) {
+				graph.addEdges(Arrays.copyOfRange(from[0], i, i+500), Arrays.copyOfRange(to[0], i, i+500), 500);
+				sleep(1);
+			}
+		});
+		writers[1] = new Thread(() -> {
+			for (int i = 0; i < numEdges; i++) {
+				graph.addVertex(from[1][i]);
+				graph.addVertex(to[1][i]);
+				graph.addEdge(from[1][i], to[1][i]);
+				if (i % 500 == 0) {
+					sleep(1);
+				}
+			}
+		});
+		
+		// the readers check every epoch they see
+		Thread[] readers = new Thread[2];
+		int[] epochsSeen = new int[2];
+		for (int r = 0; r < 2; r++) {
+			int reader = r;
+			readers[r] = new Thread(() -> {
+				long lastNumber = -1;
+				int lastEdges = 0;
+				while (writing.get()) {
+					ConcurrentGraph.Epoch epoch = graph.getEpoch();
+					CSRGraph csr = epoch.getGraph();
+					if (epoch.getNumber() < lastNumber || csr.getEdgeCount() < lastEdges) {
+						System.out.println("MISMATCH -- EPOCH "+epoch.getNumber()+" AFTER EPOCH "+lastNumber);
+						failed.set(true);
+					}
+					if (epoch.getNumber() > lastNumber) {
+						epochsSeen[reader]++;
+						// every edge must be one that was added
+						int[] offsets = csr.getOffsets();
+						int[] targets = csr.getTargets();
+						for (int v = 0; v < csr.getVertexCount(); v++) {
+							for (int i = offsets[v]; i < offsets[v+1]; i++) {
+								if (!testEdges.contains((long) csr.getId(v) << 32 | csr.getId(targets[i]))) {
+									System.out.println("MISMATCH -- EDGE "+csr.getId(v)+" "+csr.getId(targets[i])+" WAS NOT ADDED");
+									failed.set(true);
+								}
+							}
+						}
+					}
+					lastNumber = epoch.getNumber();
+					lastEdges = csr.getEdgeCount();
+				}
+			});
+		}
+		for (Thread thread : readers) {
+			thread.start();
+		}
+		for (Thread thread : writers) {
+			thread.start();
+		}
+		try {
+			for (Thread thread : writers) {
+				thread.join();
+			}
+			// the background thread publishes the last edges
+			long start = System.nanoTime();
+			while (graph.getEdgeCount() < testGraph.getEdgeCount() && System.nanoTime() - start < 2.0e9) {
+				Thread.sleep(1);
+			}
+			writing.set(false);
+			for (Thread thread : readers) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+			return false;
+		}
+		System.out.println("Epochs: "+graph.getEpoch().getNumber()+", seen by the readers: "+epochsSeen[0]+" "+epochsSeen[1]);
+		System.out.println("Edges: "+graph.getEdgeCount()+", test edges: "+testGraph.getEdgeCount());
+		
+		if (failed.get()) {
+			passed = false;
+		}
+		if (graph.getEdgeCount() != testGraph.getEdgeCount()) {
+			passed = false;
+			System.out.println("MISMATCH -- NOT ALL EDGES WERE PUBLISHED");
+		}
+		if (!graph.getInDegreeCentrality().equals(testGraph.getInDegreeCentrality())) {
+			passed = false;
+			System.out.println("MISMATCH -- IN-DEGREE CENTRALITIES DO NOT MATCH");
+		}
+		graph.close();
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("CONCURRENT GRAPH TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean testDegreeTracking() {
+		// switch on degree tracking for an empty graph, then add a batch of 
+		// edges (which becomes a CSR snapshot), single edges, a batch with 
+		// duplicates and new vertices into the edge sets, and a batch while a
+		// listener is registered (one edge at a time). After each step the 
+		// tracked in-degrees and top in-degrees must equal the ones counted
+		// by DegreeCentrality, and the counted ones without tracking.
+		System.out.println("ENTERING DEGREE TRACKING TEST");
+		boolean passed = true;
+		
+		// edges between 500 vertices, with a duplicate every 10 edges
+		int n = 8000;
+		Random random = new Random(11);
+		int[] from = new int[n];
+		int[] to = new int[n];
+		for (int i = 0; i < n; i++) {
+			from[i] = random.nextInt(500);
+			to[i] = random.nextInt(i < n / 2 ? 400 : 500);
+			if (i % 10 == 1) {
+				from[i] = from[i-1];
+				to[i] = to[i-1];
+			}
+		}
+		
+		Graph graph = new Graph();
+		graph.setDegreeTracking(true);
+		graph.addEdges(from, to, n / 4);
+		passed &= compareDegreeTracking(graph, "FIRST BATCH");
+		for (int i = n / 4; i < n / 2; i++) {
+			graph.addEdge(from[i] < 400 ? from[i] : from[0], to[i]);
+		}
+		passed &= compareDegreeTracking(graph, "SINGLE EDGES");
+		// (the second half has vertices 400 to 499 as new targets)
+		graph.addEdges(Arrays.copyOfRange(from, n / 4, 3 * n / 4), Arrays.copyOfRange(to, n / 4, 3 * n / 4), n / 2);
+		passed &= compareDegreeTracking(graph, "BATCH");
+		GraphListener listener = new GraphListener() {
+			@Override
+			public void vertexAdded(int index) {
+			}
+			
+			@Override
+			public void edgeAdded(int source, int target) {
+			}
+		};
+		graph.addListener(listener);
+		graph.addEdges(Arrays.copyOfRange(from, n / 2, n), Arrays.copyOfRange(to, n / 2, n), n / 2);
+		graph.removeListener(listener);
+		passed &= compareDegreeTracking(graph, "BATCH WITH LISTENER");
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("DEGREE TRACKING TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private boolean compareDegreeTracking(Graph graph, String step) {
+		// compare the tracked in-degrees of graph with the counted ones
+		boolean passed = true;
+		System.out.println("Comparing in-degrees after " + step.toLowerCase() + ": " + graph.getVertexCount() 
+				+ " vertices, " + graph.getEdgeCount() + " edges");
+		if (!graph.isDegreeTracking()) {
+			System.out.println("MISMATCH -- NO DEGREE TRACKING AFTER " + step);
+			return false;
+		}
+		int[] counted = new DegreeCentrality(graph.getCSR(true), 1.0).getInDegrees();
+		int[] tracked = new int[counted.length];
+		for (int v = 0; v < counted.length; v++) {
+			tracked[v] = graph.getInDegree(graph.getVertexId(v));
+			if (tracked[v] != counted[v]) {
+				System.out.println("MISMATCH -- IN-DEGREE OF " + graph.getVertexId(v) + " AFTER " + step + ": " 
+						+ tracked[v] + " " + counted[v]);
+				passed = false;
+			}
+		}
+		// the top in-degrees in order (ties in any order)
+		int[] sorted = counted.clone();
+		Arrays.sort(sorted);
+		List<Integer> top = graph.getTopInDegree(20);
+		for (int i = 0; i < top.size(); i++) {
+			if (graph.getInDegree(top.get(i)) != sorted[sorted.length - 1 - i]) {
+				System.out.println("MISMATCH -- TOP IN-DEGREE " + i + " AFTER " + step + ": " + top.get(i));
+				passed = false;
+			}
+		}
+		// and the same in-degrees without tracking
+		graph.setDegreeTracking(false);
+		for (int v = 0; v < counted.length; v += 7) {
+			if (graph.getInDegree(graph.getVertexId(v)) != tracked[v]) {
+				System.out.println("MISMATCH -- UNTRACKED IN-DEGREE OF " + graph.getVertexId(v) + " AFTER " + step);
+				passed = false;
+			}
+		}
+		graph.setDegreeTracking(true);
+		return passed;
+	}
+	
+	private boolean testAddEdges() {
+		// test adding batches of edges with addEdges() (arrays and packed 
+		// longs), into an empty graph and into a graph that has edges already,
+		// against adding the vertices and edges one by one
+		System.out.println("ENTERING ADD EDGES TEST");
+		boolean passed = true;
+		
+		// two batches of edges between 300 vertices, with duplicates in each
+		// batch and edges of the first batch repeated in the second one, and
+		// some entries after n that must not be added
+		int n = 3000;
+		Random random = new Random(7);
+		int[][] from = new int[2][n+10];
+		int[][] to = new int[2][n+10];
+		for (int b = 0; b < 2; b++) {
+			for (int i = 0; i < n+10; i++) {
+				from[b][i] = random.nextInt(300) * 3 - 100;
+				to[b][i] = random.nextInt(300) * 3 - 100;
+			}
+			for (int i = 0; i < n; i += 10) {
+				from[b][i+1] = from[b][i];
+				to[b][i+1] = to[b][i];
+			}
+		}
+		for (int i = 0; i < n; i += 20) {
+			from[1][i] = from[0][i];
+			to[1][i] = to[0][i];
+		}
+		
+		Graph testGraph = new Graph();
+		Graph arrays = new Graph();
+		Graph packed = new Graph();
+		for (int b = 0; b < 2; b++) {
+			for (int i = 0; i < n; i++) {
+				testGraph.addVertex(from[b][i]);
+				testGraph.addVertex(to[b][i]);
+				testGraph.addEdge(from[b][i], to[b][i]);
+			}
+			arrays.addEdges(from[b], to[b], n);
+			long[] pairs = new long[n];
+			for (int i = 0; i < n; i++) {
+				pairs[i] = (long) from[b][i] << 32 | (to[b][i] & 0xffffffffL);
+			}
+			packed.addEdges(Arrays.stream(pairs).iterator());
+			
+			for (Graph graph : new Graph[] {arrays, packed}) {
+				System.out.println("Batch "+b+": "+graph.getVertexCount()+" vertices, "+graph.getEdgeCount()+" edges, "
+						+graph.getUndirEdgeCount()+" undirected edges, test: "+testGraph.getVertexCount()+" "
+						+testGraph.getEdgeCount()+" "+testGraph.getUndirEdgeCount());
+				if (graph.getVertexCount() != testGraph.getVertexCount() || graph.getEdgeCount() != testGraph.getEdgeCount() 
+						|| graph.getUndirEdgeCount() != testGraph.getUndirEdgeCount()) {
+					passed = false;
+					System.out.println("MISMATCH -- NUMBERS OF VERTICES OR EDGES DO NOT MATCH");
+				}
+				// the new vertices get the same dense indices in the same order
+				if (!Arrays.equals(graph.getCSR(true).getIds(), testGraph.getCSR(true).getIds())) {
+					passed = false;
+					System.out.println("MISMATCH -- VERTICES WERE NOT ADDED IN THE ORDER THEY APPEAR");
+				}
+				if (!graph.exportGraph().equals(testGraph.exportGraph()) || !graph.exportUndirGraph().equals(testGraph.exportUndirGraph())) {
+					passed = false;
+					System.out.println("MISMATCH -- EDGES DO NOT MATCH");
+				}
+			}
+		}
+		
+		// final pass statement
+		if (!passed) {
+			System.out.println("THERE WAS A MISMATCH --- PLEASE CHECK");
+		}
+		else {
+			System.out.println("ADD EDGES TEST PASSED");
+		}
+		return passed;
+	}
+	
+	private static void sleep(long millis) {
+		// pause the writing thread of testConcurrentGraph()
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
 }
@@ -0,0 +1,203 @@
+import java.util.Arrays;
+
+/*
+ * This class is a map from int keys to int values stored in an open-addressing
+ * hash table with linear probing (see IntSet), used instead of
+ * HashMap<Integer, Integer> so that no entry and no boxed key or value is
+ * created per mapping. The key 0 marks an empty slot and its value is kept
+ * in a separate field.
+ */
+public class IntIntMap {
+
+	// marks an empty slot of the table
+	private static final int FREE = 0;
+
+	// keys (or FREE) and their values, the length is a power of two
+	private int[] keys;
+	private int[] values;
+	private int mask;
+	// whether the key 0 is in the map and its value
+	private boolean hasFree;
+	private int freeValue;
+	// number of keys including 0
+	private int size;
+
+	public IntIntMap() {
+		this(4);
+	}// end of constructor IntIntMap()
+
+	public IntIntMap(int capacity) {
+		// constructor initializes field variables for about capacity keys
+		keys = new int[IntSet.tableSize(capacity)];
+		values = new int[keys.length];
+		mask = keys.length - 1;
+		hasFree = false;
+		size = 0;
+	}// end of constructor IntIntMap() with capacity
+
+	public void put(int key, int value) {
+		// map key to value, replacing its old value
+		if (key == FREE) {
+			if (!hasFree) {
+				hasFree = true;
+				size++;
+			}
+			freeValue = value;
+			return;
+		}
+		int slot = hash(key) & mask;
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		if (4 * size > 3 * keys.length) {
+			rehash(2 * keys.length);
+		}
+	}// end of method put()
+
+	public int addTo(int key, int increment) {
+		// add increment to the value of key (0 if it is not in the map yet)
+		// and return the new value
+		int value = getOrDefault(key, 0) + increment;
+		put(key, value);
+		return value;
+	}// end of method addTo()
+
+	public int getOrDefault(int key, int defaultValue) {
+		// value of key, or defaultValue if key is not in the map
+		if (key == FREE) {
+			return hasFree ? freeValue : defaultValue;
+		}
+		int slot = hash(key) & mask;
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return defaultValue;
+	}// end of method getOrDefault()
+
+	public boolean containsKey(int key) {
+		if (key == FREE) {
+			return hasFree;
+		}
+		int slot = hash(key) & mask;
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key) {
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}// end of method containsKey()
+
+	public boolean remove(int key) {
+		// remove key from the map, return false if it was not in it
+		if (key == FREE) {
+			if (!hasFree) {
+				return false;
+			}
+			hasFree = false;
+			size--;
+			return true;
+		}
+		int slot = hash(key) & mask;
+		while (keys[slot] != key) {
+			if (keys[slot] == FREE) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		shiftKeys(slot);
+		size--;
+		return true;
+	}// end of method remove()
+
+	private void shiftKeys(int slot) {
+		// empty the slot and move back the following keys of the probe
+		// sequence that would not be found anymore otherwise
+		while (true) {
+			int last = slot;
+			slot = (slot + 1) & mask;
+			int key;
+			while (true) {
+				key = keys[slot];
+				if (key == FREE) {
+					keys[last] = FREE;
+					return;
+				}
+				// the key stays if its home slot is cyclically in (last, slot]
+				int home = hash(key) & mask;
+				if (last <= slot ? last >= home || home > slot : last >= home && home > slot) {
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			keys[last] = key;
+			values[last] = values[slot];
+		}
+	}// end of method shiftKeys()
+
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		hasFree = false;
+		size = 0;
+	}// end of method clear()
+
+	private void rehash(int length) {
+		// insert all mappings into a new table of the given length
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new int[length];
+		values = new int[length];
+		mask = length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (keys[slot] != FREE) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}// end of method rehash()
+
+	private static int hash(int key) {
+		return IntSet.hash(key);
+	}// end of method hash()
+
+	public int[] keys() {
+		// all keys (in no particular order)
+		int[] array = new int[size];
+		int pos = 0;
+		if (hasFree) {
+			array[pos++] = FREE;
+		}
+		for (int key : keys) {
+			if (key != FREE) {
+				array[pos++] = key;
+			}
+		}
+		return array;
+	}// end of method keys()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public int size() {
+		return size;
+	}// end of method size()
+
+	public boolean isEmpty() {
+		return size == 0;
+	}// end of method isEmpty()
+}
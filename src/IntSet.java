@@ -0,0 +1,258 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/*
+ * This class is a set of ints stored in an open-addressing hash table with
+ * linear probing, used instead of HashSet<Integer> so that no node and no
+ * boxed Integer is created per element. The slots hold the elements
+ * themselves, 0 marks an empty slot and is kept in a separate flag if it is
+ * in the set. Removed elements are not marked as deleted, the following
+ * elements are shifted back instead, so lookups never slow down.
+ */
+public class IntSet {
+
+	// marks an empty slot of the table
+	private static final int FREE = 0;
+	private static final int[] NO_KEYS = new int[0];
+
+	// elements (or FREE), the length is 0 or a power of two
+	private int[] keys;
+	private int mask;
+	// whether 0 is in the set
+	private boolean hasFree;
+	// number of elements including 0
+	private int size;
+
+	public IntSet() {
+		// constructor initializes field variables, the table is only
+		// allocated for the first element
+		keys = NO_KEYS;
+		mask = -1;
+		hasFree = false;
+		size = 0;
+	}// end of constructor IntSet()
+
+	public IntSet(int capacity) {
+		// constructor initializes field variables for about capacity elements
+		this();
+		if (capacity > 0) {
+			keys = new int[tableSize(capacity)];
+			mask = keys.length - 1;
+		}
+	}// end of constructor IntSet() with capacity
+
+	public boolean add(int key) {
+		// add key to the set, return false if it was already in it
+		if (key == FREE) {
+			if (hasFree) {
+				return false;
+			}
+			hasFree = true;
+			size++;
+			return true;
+		}
+		if (keys.length == 0) {
+			keys = new int[4];
+			mask = 3;
+		}
+		int slot = hash(key) & mask;
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		size++;
+		if (4 * size > 3 * keys.length) {
+			rehash(2 * keys.length);
+		}
+		return true;
+	}// end of method add()
+
+	public int addAll(int[] values, int from, int to) {
+		// add values[from..to-1] to the set with the table grown only once,
+		// the values that were not in the set yet are moved to the front 
+		// (values[from..from+count-1], in their order) and count is returned
+		ensureCapacity(size + to - from);
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			int key = values[i];
+			boolean added;
+			if (key == FREE) {
+				added = !hasFree;
+				hasFree = true;
+			}
+			else {
+				int slot = hash(key) & mask;
+				while (keys[slot] != FREE && keys[slot] != key) {
+					slot = (slot + 1) & mask;
+				}
+				added = keys[slot] == FREE;
+				keys[slot] = key;
+			}
+			if (added) {
+				size++;
+				values[from + count++] = key;
+			}
+		}
+		return count;
+	}// end of method addAll()
+
+	public void ensureCapacity(int capacity) {
+		// grow the table once for about capacity elements, so that adding
+		// many elements does not rehash several times
+		int length = tableSize(capacity);
+		if (length > keys.length) {
+			rehash(length);
+		}
+	}// end of method ensureCapacity()
+
+	public boolean contains(int key) {
+		if (key == FREE) {
+			return hasFree;
+		}
+		if (keys.length == 0) {
+			return false;
+		}
+		int slot = hash(key) & mask;
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key) {
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}// end of method contains()
+
+	public boolean remove(int key) {
+		// remove key from the set, return false if it was not in it
+		if (key == FREE) {
+			if (!hasFree) {
+				return false;
+			}
+			hasFree = false;
+			size--;
+			return true;
+		}
+		if (keys.length == 0) {
+			return false;
+		}
+		int slot = hash(key) & mask;
+		while (keys[slot] != key) {
+			if (keys[slot] == FREE) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		shiftKeys(slot);
+		size--;
+		return true;
+	}// end of method remove()
+
+	private void shiftKeys(int slot) {
+		// empty the slot and move back the following elements of the probe
+		// sequence that would not be found anymore otherwise
+		while (true) {
+			int last = slot;
+			slot = (slot + 1) & mask;
+			int key;
+			while (true) {
+				key = keys[slot];
+				if (key == FREE) {
+					keys[last] = FREE;
+					return;
+				}
+				// the key stays if its home slot is cyclically in (last, slot]
+				int home = hash(key) & mask;
+				if (last <= slot ? last >= home || home > slot : last >= home && home > slot) {
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			keys[last] = key;
+		}
+	}// end of method shiftKeys()
+
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		hasFree = false;
+		size = 0;
+	}// end of method clear()
+
+	private void rehash(int length) {
+		// insert all elements into a new table of the given length
+		int[] oldKeys = keys;
+		keys = new int[length];
+		mask = length - 1;
+		for (int key : oldKeys) {
+			if (key != FREE) {
+				int slot = hash(key) & mask;
+				while (keys[slot] != FREE) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+			}
+		}
+	}// end of method rehash()
+
+	static int tableSize(int capacity) {
+		// power of two length for a table that is at most 3/4 full with capacity elements
+		int length = 4;
+		while (3 * (long) length < 4 * (long) capacity) {
+			length <<= 1;
+		}
+		return length;
+	}// end of method tableSize()
+
+	static int hash(int key) {
+		// spread the bits of key, consecutive keys would otherwise fill
+		// consecutive slots and build long probe sequences
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}// end of method hash()
+
+	public void forEach(IntConsumer action) {
+		// call action for each element (in no particular order)
+		if (hasFree) {
+			action.accept(FREE);
+		}
+		for (int key : keys) {
+			if (key != FREE) {
+				action.accept(key);
+			}
+		}
+	}// end of method forEach()
+
+	public int copyTo(int[] array, int pos) {
+		// copy the elements to array starting at pos, return the number of elements
+		int start = pos;
+		if (hasFree) {
+			array[pos++] = FREE;
+		}
+		for (int key : keys) {
+			if (key != FREE) {
+				array[pos++] = key;
+			}
+		}
+		return pos - start;
+	}// end of method copyTo()
+
+	public int[] toArray() {
+		int[] array = new int[size];
+		copyTo(array, 0);
+		return array;
+	}// end of method toArray()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public int size() {
+		return size;
+	}// end of method size()
+
+	public boolean isEmpty() {
+		return size == 0;
+	}// end of method isEmpty()
+}
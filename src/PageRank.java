@@ -1,5 +1,9 @@
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class PageRank {
 
@@ -11,6 +15,9 @@ public class PageRank {
 	 * is smaller than the convergence criterion (eps 1e-8).
 	 */ 
 	
+	// default damping constant, shared by the other Page Rank classes
+	public static final double DAMP = 0.85;
+	
 	int numVer; // number vertices 
 	private double norm; // normalization constant (default N * 1)
 	private double damp; // damping constant
@@ -24,12 +31,32 @@ public class PageRank {
 	// so HashMap< i, HashMap< j, contribution> >
 	private HashMap<Integer, HashMap<Integer, Double> > contribution;
 	
+	// CSR snapshot of the graph, if the scores are calculated on arrays 
+	// indexed by the dense vertex index instead of hash maps
+	private CSRGraph csr;
+	// in-edge index of the CSR snapshot (for each vertex the sources of
+	// its incoming edges) and 1 / (number of edges outgoing from j) for each j
+	private CSRGraph inEdges;
+	private double[] invDegree;
+	// current and last page rank score of each vertex (dense index)
+	private double[] rank;
+	private double[] lastRank;
+	// number of iterations of the last run
+	private int iterations;
+	// number of threads used on the CSR snapshot (default 1), and the first
+	// vertex of each vertex range the threads work on (with about the same
+	// number of incoming edges per range)
+	private int threads;
+	private int[] ranges;
+	// change below which a vertex is frozen in the adaptive mode (0 = off)
+	private double tolerance;
+	
 	
 	public PageRank(HashMap<Integer, HashSet<Integer>> vertices,double norm) {
 		// default constructor initializes field variables
 		this.numVer = vertices.keySet().size();
 		this.norm = numVer * norm;
-		this.damp = 0.85;
+		this.damp = DAMP;
 		this.eps = 1.0e-8;
 		
 		pr = new HashMap<Integer, Double>();
@@ -67,9 +94,105 @@ public class PageRank {
 		this.eps = eps;
 	}// end of constructor more parameters PageRank()
 	
+	public PageRank(CSRGraph csr, double norm) {
+		// constructor for calculating the scores on a CSR snapshot of the graph
+		this.numVer = csr.getVertexCount();
+		this.norm = numVer * norm;
+		this.damp = DAMP;
+		this.eps = 1.0e-8;
+		this.csr = csr;
+		this.inEdges = csr.transpose();
+		this.threads = 1;
+		
+		// the contribution of j to each vertex it has an edge to
+		// is the same, 1 / (number of edges outgoing from j)
+		invDegree = new double[numVer];
+		for (int j = 0; j < numVer; j++) {
+			int degree = csr.getDegree(j);
+			invDegree[j] = degree == 0 ? 0.0 : 1.0/degree;
+		}
+		
+		// initialize the initial page rank scores, same for each node
+		rank = new double[numVer];
+		lastRank = new double[numVer];
+		Arrays.fill(rank, 1.0/norm);
+	}// end of constructor CSR PageRank()
+	
+	public PageRank(CSRGraph csr, double norm, double eps, double damp) {
+		// this constructor allows to set non-default parameters for norm, damp, and eps
+		this(csr,norm);
+		this.damp = damp;
+		this.eps = eps;
+	}// end of constructor more parameters CSR PageRank()
+	
+	public void setThreads(int threads) {
+		// set the number of threads for calculating the scores on a CSR snapshot
+		// (not with the adaptive mode, whose in-place sweeps are sequential)
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1.");
+		}
+		if (threads > 1 && tolerance > 0) {
+			throw new IllegalStateException("The adaptive mode runs with one thread only.");
+		}
+		this.threads = threads;
+	}// end of method setThreads()
+	
+	public void setInitialRanks(Map<Integer, Double> previous, double defaultRank) {
+		// start the iteration from the scores of an earlier calculation 
+		// (e.g. on an older snapshot of the graph) instead of 1 / norm, 
+		// vertices without an earlier score start at defaultRank. If the graph
+		// has changed little, far fewer iterations are needed.
+		if (defaultRank < 0) {
+			throw new IllegalArgumentException("The default rank must not be negative.");
+		}
+		if (csr != null) {
+			for (int v = 0; v < numVer; v++) {
+				Double score = previous.get(csr.getId(v));
+				rank[v] = score != null ? score : defaultRank;
+			}
+		}
+		else {
+			for (int j : pr.keySet()) {
+				Double score = previous.get(j);
+				pr.put(j, score != null ? score : defaultRank);
+			}
+		}
+	}// end of method setInitialRanks()
+	
+	public void setAdaptive(double tolerance) {
+		// update the scores in place (Gauss-Seidel) and stop recomputing a
+		// vertex once its score changes by less than tolerance in two sweeps
+		// in a row, until an in-neighbor changes again (0 switches it off).
+		// The sweeps run with one thread, so setThreads() must not be set
+		// to more.
+		if (tolerance < 0) {
+			throw new IllegalArgumentException("The tolerance must not be negative.");
+		}
+		if (csr == null && tolerance > 0) {
+			throw new IllegalStateException("The adaptive mode needs a CSR snapshot.");
+		}
+		if (threads > 1 && tolerance > 0) {
+			throw new IllegalStateException("The adaptive mode runs with one thread only.");
+		}
+		this.tolerance = tolerance;
+	}// end of method setAdaptive()
+	
 	public void run() {
 		// run the Page Rank algorithm
 		
+		if (csr != null && tolerance > 0) {
+			runAdaptive();
+			return;
+		}
+		if (csr != null && threads > 1) {
+			runParallel();
+			return;
+		}
+		if (csr != null) {
+			runCSR();
+			return;
+		}
+		
 		// count iterations
 		int itercount = 0;
 		// initial arbitrary mismatch (squared difference) between current and last page rank 
@@ -126,9 +249,283 @@ public class PageRank {
 		}
 	}// end of constructor run()
 	
+	private void runCSR() {
+		// run the Page Rank algorithm on the CSR snapshot. Each vertex i pulls 
+		// the contributions of all vertices j with edges to i from the in-edge 
+		// index, so every score is written exactly once per iteration and the
+		// loop only works on the preallocated arrays (nothing is allocated 
+		// until the algorithm has converged).
+		int[] inOffsets = inEdges.getOffsets();
+		int[] sources = inEdges.getTargets();
+		
+		int itercount = 0;
+		double error = 100;
+		while (error>eps) {
+			itercount++;
+			
+			// swap the score arrays, the new scores are written to rank
+			double[] tmp = lastRank;
+			lastRank = rank;
+			rank = tmp;
+			
+			double allPrSum = 0;
+			for (int i = 0; i < numVer; i++) {
+				// sum of products of page rank scores and contributions from 
+				// incoming edges, plus (1 - damp) for each incoming edge 
+				double prsum = 0;
+				for (int e = inOffsets[i]; e < inOffsets[i+1]; e++) {
+					int j = sources[e];
+					prsum += lastRank[j] * invDegree[j];
+				}
+				int inDegree = inOffsets[i+1] - inOffsets[i];
+				rank[i] = (damp * prsum + inDegree * (1.0-damp))/norm;
+				allPrSum += rank[i];
+			}
+			
+			// normalize all vertices' scores and recalculate the mismatch
+			double iterErr = 0;
+			for (int i = 0; i < numVer; i++) {
+				rank[i] /= allPrSum;
+				iterErr += (rank[i] - lastRank[i])*(rank[i] - lastRank[i]);
+			}
+			error = iterErr;
+		}
+		iterations = itercount;
+		System.out.println("Page rank iterations " + itercount);
+		System.out.println("Error " + error);
+	}// end of method runCSR()
+	
+	private void runAdaptive() {
+		// run the Page Rank algorithm on the CSR snapshot with in-place 
+		// updates: each vertex pulls the scores its in-neighbors already have
+		// in this sweep (Gauss-Seidel), which spreads changes faster than 
+		// runCSR(). The scores of run() are normalized after every iteration,
+		// so here the new score is multiplied by the normalization factor of
+		// the last sweep instead (starting with the one of a graph without 
+		// dangling vertices), which keeps the same fixed point. Vertices 
+		// whose score changes by less than tolerance in two sweeps in a row
+		// are frozen and left out of the following sweeps (one small change
+		// alone can come before the change of an in-neighbor reaches them).
+		// A vertex whose score still changes by tolerance or more wakes up 
+		// its frozen out-neighbors, since their in-sums are no longer the 
+		// ones they were frozen with.
+		int[] inOffsets = inEdges.getOffsets();
+		int[] sources = inEdges.getTargets();
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		
+		double total = 0;
+		for (int i = 0; i < numVer; i++) {
+			total += rank[i];
+		}
+		for (int i = 0; i < numVer; i++) {
+			rank[i] /= total;
+		}
+		// vertices whose score changed by less than tolerance in the last 
+		// sweep, and the vertices that are left out of the sweeps
+		boolean[] calm = new boolean[numVer];
+		boolean[] frozen = new boolean[numVer];
+		int numActive = numVer;
+		int numFrozen = 0;
+		// the scores sum up to 1, so without dangling vertices the sum of the
+		// new scores before scaling is (damp + (1 - damp) * E) / norm
+		double scale = norm/(damp + (1.0-damp) * csr.getEdgeCount());
+		
+		int itercount = 0;
+		double error = 100;
+		while (error>eps && numActive > 0) {
+			itercount++;
+			
+			// sum of the scores before scaling, of frozen vertices from their
+			// current score
+			double rawSum = 0;
+			double iterErr = 0;
+			// vertices that are active in the next sweep
+			int nextActive = 0;
+			for (int i = 0; i < numVer; i++) {
+				if (frozen[i]) {
+					rawSum += rank[i] / scale;
+					continue;
+				}
+				double prsum = 0;
+				for (int e = inOffsets[i]; e < inOffsets[i+1]; e++) {
+					int j = sources[e];
+					prsum += rank[j] * invDegree[j];
+				}
+				int inDegree = inOffsets[i+1] - inOffsets[i];
+				double raw = (damp * prsum + inDegree * (1.0-damp))/norm;
+				double change = raw * scale - rank[i];
+				rank[i] = raw * scale;
+				rawSum += raw;
+				iterErr += change * change;
+				boolean small = Math.abs(change) < tolerance;
+				if (!small && numFrozen > 0) {
+					// (out-neighbors after i are updated in this sweep)
+					for (int e = offsets[i]; e < offsets[i+1]; e++) {
+						int w = targets[e];
+						if (frozen[w]) {
+							frozen[w] = false;
+							calm[w] = false;
+							numFrozen--;
+							if (w < i) {
+								nextActive++;
+							}
+						}
+					}
+				}
+				if (small && calm[i]) {
+					frozen[i] = true;
+					numFrozen++;
+				}
+				else {
+					nextActive++;
+				}
+				calm[i] = small;
+			}
+			System.out.println("Page rank sweep " + itercount + ", active vertices " + numActive);
+			numActive = nextActive;
+			scale = 1.0/rawSum;
+			
+			// normalize all vertices' scores
+			total = 0;
+			for (int i = 0; i < numVer; i++) {
+				total += rank[i];
+			}
+			for (int i = 0; i < numVer; i++) {
+				rank[i] /= total;
+			}
+			error = iterErr;
+		}
+		iterations = itercount;
+		System.out.println("Page rank iterations " + itercount);
+		System.out.println("Error " + error);
+	}// end of method runAdaptive()
+	
+	private void runParallel() {
+		// run the Page Rank algorithm on the CSR snapshot with several threads.
+		// The vertices are split into ranges which are calculated in parallel
+		// on a fork join pool. Each new score only depends on the scores of the
+		// last iteration, so the threads only write to their own range of the 
+		// rank array and read from the (unchanged) lastRank array. The sum for 
+		// the normalization and the mismatch are summed up over the ranges.
+		splitRanges(4 * threads);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		
+		int itercount = 0;
+		double error = 100;
+		try {
+			while (error>eps) {
+				itercount++;
+				
+				// swap the score arrays, the new scores are written to rank
+				double[] tmp = lastRank;
+				lastRank = rank;
+				rank = tmp;
+				
+				double allPrSum = pool.invoke(new RangeTask(0, ranges.length-1, 0, 0.0));
+				error = pool.invoke(new RangeTask(0, ranges.length-1, 1, allPrSum));
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+		iterations = itercount;
+		System.out.println("Page rank iterations " + itercount);
+		System.out.println("Error " + error);
+	}// end of method runParallel()
+	
+	private void splitRanges(int numRanges) {
+		// split the vertices in numRanges ranges with about the same amount of 
+		// work (vertices plus incoming edges), ranges[r] is the first vertex of
+		// range r and ranges[numRanges] = number of vertices
+		int[] inOffsets = inEdges.getOffsets();
+		long work = (long) numVer + inOffsets[numVer];
+		ranges = new int[numRanges+1];
+		int v = 0;
+		for (int r = 1; r < numRanges; r++) {
+			long goal = work * r / numRanges;
+			while (v < numVer && (long) v + inOffsets[v] < goal) {
+				v++;
+			}
+			ranges[r] = v;
+		}
+		ranges[numRanges] = numVer;
+	}// end of method splitRanges()
+	
+	// task for the fork join pool, which calculates the ranges first to last-1
+	// by splitting them in half until only one range is left. In step 0 it 
+	// calculates the new scores and returns their sum, in step 1 it normalizes 
+	// the scores with sum and returns the squared difference to the last scores
+	private class RangeTask extends RecursiveTask<Double> {
+		private static final long serialVersionUID = 1L;
+		private int first;
+		private int last;
+		private int step;
+		private double sum;
+		
+		RangeTask(int first, int last, int step, double sum) {
+			this.first = first;
+			this.last = last;
+			this.step = step;
+			this.sum = sum;
+		}
+		
+		@Override
+		protected Double compute() {
+			if (last - first > 1) {
+				int mid = (first + last) >>> 1;
+				RangeTask left = new RangeTask(first, mid, step, sum);
+				left.fork();
+				double right = new RangeTask(mid, last, step, sum).compute();
+				return left.join() + right;
+			}
+			int[] inOffsets = inEdges.getOffsets();
+			int[] sources = inEdges.getTargets();
+			double result = 0;
+			for (int i = ranges[first]; i < ranges[last]; i++) {
+				if (step == 0) {
+					double prsum = 0;
+					for (int e = inOffsets[i]; e < inOffsets[i+1]; e++) {
+						int j = sources[e];
+						prsum += lastRank[j] * invDegree[j];
+					}
+					int inDegree = inOffsets[i+1] - inOffsets[i];
+					rank[i] = (damp * prsum + inDegree * (1.0-damp))/norm;
+					result += rank[i];
+				}
+				else {
+					rank[i] /= sum;
+					result += (rank[i] - lastRank[i])*(rank[i] - lastRank[i]);
+				}
+			}
+			return result;
+		}
+	}
+	
 	public HashMap<Integer, Double> calculatePageRank(){
 		// getter method to start the calculation and return the result to calling method
 		run();
+		if (csr != null) {
+			// map the scores back to the original vertex IDs
+			pr = new HashMap<Integer, Double>();
+			for (int v = 0; v < numVer; v++) {
+				pr.put(csr.getId(v), rank[v]);
+			}
+		}
 		return pr;
 	}// end of method calculatePageRank()
+	
+	public double[] getRanks() {
+		// the scores by dense index of the CSR snapshot after run(), 
+		// without mapping them to the vertex IDs
+		if (csr == null) {
+			throw new IllegalStateException("The scores are only stored in an array for CSR snapshots.");
+		}
+		return rank;
+	}// end of method getRanks()
+	
+	public int getIterations() {
+		// number of iterations of the last run (only counted on CSR snapshots)
+		return iterations;
+	}// end of method getIterations()
 }
@@ -0,0 +1,299 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* This class finds the strongly connected components of a graph with
+ * several threads, using the forward-backward algorithm with trimming.
+ * First, all vertices without incoming or outgoing edges (among the vertices
+ * not yet assigned to an SCC) are trimmed off in parallel rounds, because
+ * each of them is an SCC by itself. Then the SCC of a pivot vertex is found
+ * as the intersection of the vertices it can reach (forward) and the vertices
+ * that can reach it (backward). All other SCCs lie completely in one of the
+ * three remaining parts (forward only, backward only, neither), which are
+ * independent of each other and processed in parallel on a fork join pool.
+ * Small parts are finished with the sequential Tarjan algorithm.
+ */
+
+public class ParallelSCC {
+
+	// parts with fewer vertices are finished with the Tarjan algorithm
+	private static final int SEQUENTIAL_SIZE = 4096;
+	// part ID that no vertex has
+	private static final int NONE = Integer.MIN_VALUE;
+
+	// the graph (CSR) and its in-edge index
+	private CSRGraph graph;
+	private CSRGraph inEdges;
+	private int threads;
+	// the part each vertex currently belongs to (-1 if it is already in an SCC),
+	// every part is only changed by the task that works on it
+	private int[] part;
+	// the SCC of each vertex
+	private int[] scc;
+	// position of each vertex in its part, used to build the CSR for Tarjan
+	private int[] local;
+	private AtomicInteger nextPart;
+	private AtomicInteger nextSCC;
+	private List<HashSet<Integer>> connectedComponentList;
+
+	public ParallelSCC(CSRGraph graph, int threads) {
+		// constructor initializes field variables
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1.");
+		}
+		int numVerts = graph.getVertexCount();
+		this.graph = graph;
+		this.inEdges = graph.transpose();
+		this.threads = threads;
+		this.part = new int[numVerts];
+		this.scc = new int[numVerts];
+		this.local = new int[numVerts];
+		this.nextPart = new AtomicInteger(1);
+		this.nextSCC = new AtomicInteger(0);
+		this.connectedComponentList = new LinkedList<HashSet<Integer>>();
+	}// end of constructor ParallelSCC()
+
+	public void run() {
+		// find all SCCs, all vertices start in part 0
+		int numVerts = graph.getVertexCount();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			// trim in rounds, as long as a round still removes at least 1%
+			int active = numVerts;
+			while (active > 0) {
+				int trimmed = pool.invoke(new TrimTask(0, numVerts));
+				active -= trimmed;
+				if (trimmed * 100 < active) {
+					break;
+				}
+			}
+
+			// split the remaining vertices into SCCs
+			int[] members = new int[active];
+			int pos = 0;
+			for (int v = 0; v < numVerts; v++) {
+				if (part[v] == 0) {
+					members[pos++] = v;
+				}
+			}
+			pool.invoke(new SplitTask(members, 0));
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		// collect the vertices of each SCC with their original IDs
+		ArrayList<HashSet<Integer>> components = new ArrayList<HashSet<Integer>>();
+		for (int c = 0; c < nextSCC.get(); c++) {
+			components.add(new HashSet<Integer>());
+		}
+		for (int v = 0; v < numVerts; v++) {
+			components.get(scc[v]).add(graph.getId(v));
+		}
+		connectedComponentList.addAll(components);
+	}// end of method run()
+
+	private boolean hasActiveNeighbor(CSRGraph edges, int v) {
+		// check if v has an edge to another vertex that is not yet in an SCC
+		int[] offsets = edges.getOffsets();
+		int[] targets = edges.getTargets();
+		for (int i = offsets[v]; i < offsets[v+1]; i++) {
+			int w = targets[i];
+			if (w != v && part[w] >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}// end of method hasActiveNeighbor()
+
+	// task that trims the vertices first to last-1, splitting the range in half
+	// until it is small enough, and returns the number of trimmed vertices.
+	// A vertex trimmed by one thread may be seen as still active by another
+	// thread in the same round, which only means it is trimmed one round later.
+	private class TrimTask extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+		private int first;
+		private int last;
+
+		TrimTask(int first, int last) {
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected Integer compute() {
+			if (last - first > 8192) {
+				int mid = (first + last) >>> 1;
+				TrimTask left = new TrimTask(first, mid);
+				left.fork();
+				int right = new TrimTask(mid, last).compute();
+				return left.join() + right;
+			}
+			int trimmed = 0;
+			for (int v = first; v < last; v++) {
+				if (part[v] == 0 && (!hasActiveNeighbor(graph, v) || !hasActiveNeighbor(inEdges, v))) {
+					part[v] = -1;
+					scc[v] = nextSCC.getAndIncrement();
+					trimmed++;
+				}
+			}
+			return trimmed;
+		}
+	}
+
+	// task that splits the vertices in members (all in part p) into SCCs
+	private class SplitTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int[] members;
+		private int p;
+
+		SplitTask(int[] members, int p) {
+			this.members = members;
+			this.p = p;
+		}
+
+		@Override
+		protected void compute() {
+			if (members.length == 0) {
+				return;
+			}
+			if (members.length < SEQUENTIAL_SIZE) {
+				tarjan(members, p);
+				return;
+			}
+
+			// vertices reachable from the pivot go to the new part forward
+			int pivot = members[0];
+			int forward = nextPart.getAndIncrement();
+			int backward = nextPart.getAndIncrement();
+			int[] reachedFw = reach(graph, pivot, forward, NONE, members.length);
+
+			// vertices that reach the pivot and are in part forward are the 
+			// pivot's SCC (part -1), the others go to the new part backward
+			int[] reachedBw = reach(inEdges, pivot, backward, forward, members.length);
+			int component = nextSCC.getAndIncrement();
+			for (int v : reachedBw) {
+				if (part[v] == -1) {
+					scc[v] = component;
+				}
+			}
+
+			// the three remaining parts
+			int[] fwOnly = filter(reachedFw, forward);
+			int[] bwOnly = filter(reachedBw, backward);
+			int[] rest = filter(members, p);
+			invokeAll(new SplitTask(fwOnly, forward), new SplitTask(bwOnly, backward), new SplitTask(rest, p));
+		}
+
+		private int[] reach(CSRGraph edges, int start, int to, int found, int max) {
+			// BFS from start along the edges over the vertices in part p, which 
+			// are moved to part to, and the vertices in part found, which are 
+			// moved to part -1. Returns all vertices reached.
+			int[] offsets = edges.getOffsets();
+			int[] targets = edges.getTargets();
+			int[] queue = new int[max];
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = start;
+			part[start] = part[start] == found ? -1 : to;
+			while (head < tail) {
+				int curr = queue[head++];
+				for (int i = offsets[curr]; i < offsets[curr+1]; i++) {
+					int next = targets[i];
+					if (part[next] == p) {
+						part[next] = to;
+						queue[tail++] = next;
+					}
+					else if (part[next] == found) {
+						part[next] = -1;
+						queue[tail++] = next;
+					}
+				}
+			}
+			return Arrays.copyOf(queue, tail);
+		}
+
+		private int[] filter(int[] vertices, int q) {
+			// the vertices that are (still) in part q
+			int count = 0;
+			for (int v : vertices) {
+				if (part[v] == q) {
+					count++;
+				}
+			}
+			int[] result = new int[count];
+			count = 0;
+			for (int v : vertices) {
+				if (part[v] == q) {
+					result[count++] = v;
+				}
+			}
+			return result;
+		}
+	}
+
+	private void tarjan(int[] members, int p) {
+		// find the SCCs of the vertices in members (all in part p) with the
+		// Tarjan algorithm on the CSR of the edges between them
+		for (int i = 0; i < members.length; i++) {
+			local[members[i]] = i;
+		}
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		int[] localOffsets = new int[members.length+1];
+		int numEdges = 0;
+		for (int i = 0; i < members.length; i++) {
+			int v = members[i];
+			for (int e = offsets[v]; e < offsets[v+1]; e++) {
+				if (part[targets[e]] == p) {
+					numEdges++;
+				}
+			}
+			localOffsets[i+1] = numEdges;
+		}
+		int[] localTargets = new int[numEdges];
+		numEdges = 0;
+		for (int v : members) {
+			for (int e = offsets[v]; e < offsets[v+1]; e++) {
+				if (part[targets[e]] == p) {
+					localTargets[numEdges++] = local[targets[e]];
+				}
+			}
+		}
+
+		// the IDs of the local CSR are the positions in members
+		int[] positions = new int[members.length];
+		for (int i = 0; i < members.length; i++) {
+			positions[i] = i;
+		}
+		TarjanSCC tarjan = new TarjanSCC(new CSRGraph(localOffsets, localTargets, positions));
+		tarjan.run();
+		for (HashSet<Integer> component : tarjan.getConnectedComponentList()) {
+			int c = nextSCC.getAndIncrement();
+			for (int i : component) {
+				scc[members[i]] = c;
+			}
+		}
+		for (int v : members) {
+			part[v] = -1;
+		}
+	}// end of method tarjan()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public int getSCCCount() {
+		return nextSCC.get();
+	}// end of method getSCCCount()
+
+	public List<HashSet<Integer>> getConnectedComponentList() {
+		return connectedComponentList;
+	}// end of method getConnectedComponentList()
+}
@@ -0,0 +1,193 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+/* This class approximates the personalized Page Rank of the vertices around a
+ * seed vertex (or seed set) with the forward push algorithm of Andersen, Chung
+ * and Lang. Every vertex has an estimate p and a residual r; at the start all
+ * of the probability mass is residual on the seeds. Pushing a vertex u moves
+ * the part (1 - damp) of its residual to p(u) and spreads the rest evenly over
+ * the residuals of its out-neighbors (a vertex without outgoing edges gives it
+ * back to the seeds, like a restart of the random walk). Only vertices whose
+ * residual is at least eps times their out-degree are pushed, so the number
+ * of pushes is bounded by 1 / (eps * (1 - damp)) independent of the size of
+ * the graph. When it stops, every residual r(v) is below eps * max(outdegree(v), 1).
+ * The exact score is p plus the scores the residuals would still spread, so
+ * p never overestimates and the sum of all errors is at most the sum of the
+ * residuals, i.e. below eps * (E + V). Only on undirected graphs does this
+ * give a bound per vertex (p(v) at most eps * degree(v) below the exact score).
+ * p and r are kept in primitive hash maps, so only the touched vertices cost
+ * memory. The push runs on a CSR snapshot or directly on the edge sets of a
+ * Graph, so a graph that was just changed needs no new snapshot first.
+ */
+
+public class PersonalizedPageRank {
+
+	// the edges are read from the snapshot csr, or from graph if it is null
+	private CSRGraph csr;
+	private Graph graph;
+	private double eps; // push threshold (per out-edge)
+	private double damp; // damping constant
+	// number of pushes and the sum of the residuals of the last calculation
+	private int pushes;
+	private double residual;
+	// out-neighbors of the vertex pushed last (only used with graph)
+	private int[] row;
+
+	public PersonalizedPageRank(CSRGraph graph) {
+		// default constructor initializes field variables
+		this(graph, 1.0e-6, PageRank.DAMP);
+	}// end of constructor PersonalizedPageRank()
+
+	public PersonalizedPageRank(CSRGraph graph, double eps, double damp) {
+		// constructor with convergence criterion eps and damping constant damp
+		if (eps <= 0 || damp < 0 || damp >= 1) {
+			throw new IllegalArgumentException("eps must be positive and damp in [0, 1).");
+		}
+		this.csr = graph;
+		this.eps = eps;
+		this.damp = damp;
+	}// end of constructor PersonalizedPageRank() with eps and damp
+
+	public PersonalizedPageRank(Graph graph, double eps, double damp) {
+		// push over the edge sets of graph, which must not be changed during
+		// a calculation
+		this((CSRGraph) null, eps, damp);
+		this.graph = graph;
+		this.row = new int[16];
+	}// end of constructor PersonalizedPageRank() with a graph
+
+	public HashMap<Integer, Double> calculate(int seed) {
+		// personalized Page Rank scores with respect to one seed vertex
+		return calculate(Arrays.asList(seed));
+	}// end of method calculate()
+
+	public HashMap<Integer, Double> calculate(Collection<Integer> seeds) {
+		// personalized Page Rank scores with respect to the seed vertices (the
+		// random walk restarts at each of them with the same probability), only
+		// the vertices with a score > 0 are in the map
+		if (seeds.isEmpty()) {
+			throw new IllegalArgumentException("At least one seed vertex is needed.");
+		}
+		int[] seedIndices = new int[seeds.size()];
+		int numSeeds = 0;
+		for (int seed : seeds) {
+			int v = csr != null ? csr.getIndex(seed) : graph.getIndex(seed);
+			if (v < 0) {
+				throw new IllegalArgumentException("The seed vertex " + seed + " is not in the graph.");
+			}
+			seedIndices[numSeeds++] = v;
+		}
+		int[] offsets = csr != null ? csr.getOffsets() : null;
+		int[] targets = csr != null ? csr.getTargets() : null;
+		double alpha = 1.0 - damp;
+
+		IntDoubleMap p = new IntDoubleMap();
+		IntDoubleMap r = new IntDoubleMap();
+		// FIFO queue (ring buffer) of vertices to push, each at most once at a time
+		IntSet queued = new IntSet();
+		int[] queue = new int[16];
+		int head = 0;
+		int count = 0;
+		for (int v : seedIndices) {
+			r.addTo(v, 1.0 / numSeeds);
+			if (queued.add(v)) {
+				if (count == queue.length) {
+					queue = grow(queue, head, count);
+					head = 0;
+				}
+				queue[(head + count++) % queue.length] = v;
+			}
+		}
+
+		pushes = 0;
+		while (count > 0) {
+			int u = queue[head];
+			head = (head + 1) % queue.length;
+			count--;
+			queued.remove(u);
+			double ru = r.getOrDefault(u, 0.0);
+			int degree = degree(u);
+			if (ru < eps * Math.max(degree, 1)) {
+				continue;
+			}
+			pushes++;
+			p.addTo(u, alpha * ru);
+			r.put(u, 0.0);
+
+			// spread the rest over the out-neighbors (or back to the seeds)
+			int[] receivers = seedIndices;
+			int first = 0;
+			int numReceivers = numSeeds;
+			if (degree > 0) {
+				receivers = csr != null ? targets : row(u);
+				first = csr != null ? offsets[u] : 0;
+				numReceivers = degree;
+			}
+			double share = damp * ru / numReceivers;
+			for (int j = first; j < first + numReceivers; j++) {
+				int v = receivers[j];
+				double rv = r.addTo(v, share);
+				if (rv >= eps * Math.max(degree(v), 1) && queued.add(v)) {
+					if (count == queue.length) {
+						queue = grow(queue, head, count);
+						head = 0;
+					}
+					queue[(head + count++) % queue.length] = v;
+				}
+			}
+		}
+
+		residual = 0.0;
+		for (int v : r.keys()) {
+			residual += r.getOrDefault(v, 0.0);
+		}
+
+		// map the scores to the original vertex IDs
+		HashMap<Integer, Double> scores = new HashMap<Integer, Double>();
+		for (int v : p.keys()) {
+			int id = csr != null ? csr.getId(v) : graph.getVertexId(v);
+			scores.put(id, p.getOrDefault(v, 0.0));
+		}
+		return scores;
+	}// end of method calculate() with seed set
+
+	private int degree(int v) {
+		// number of out-edges of dense index v
+		return csr != null ? csr.getDegree(v) : graph.getOutNeighbors(v).size();
+	}// end of method degree()
+
+	private int[] row(int u) {
+		// copy the out-neighbors of dense index u (of graph) to the start of row
+		IntSet neighbors = graph.getOutNeighbors(u);
+		if (neighbors.size() > row.length) {
+			row = new int[Math.max(neighbors.size(), 2 * row.length)];
+		}
+		neighbors.copyTo(row, 0);
+		return row;
+	}// end of method row()
+
+	private static int[] grow(int[] queue, int head, int count) {
+		// copy the ring buffer into an array of twice the size, starting at 0
+		int[] bigger = new int[2 * queue.length];
+		for (int i = 0; i < count; i++) {
+			bigger[i] = queue[(head + i) % queue.length];
+		}
+		return bigger;
+	}// end of method grow()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public int getPushes() {
+		// number of pushes of the last calculation
+		return pushes;
+	}// end of method getPushes()
+
+	public double getResidual() {
+		// probability mass left in the residuals by the last calculation, the
+		// scores sum up to 1 minus this
+		return residual;
+	}// end of method getResidual()
+}
@@ -0,0 +1,306 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/* This class calculates the textbook Page Rank scores of a CSR snapshot by
+ * power iteration, where each iteration is one sparse matrix times dense
+ * vector product: every vertex u adds damp * rank(u) / outdegree(u) to the
+ * new score of each of its out-neighbors, in one pass over the rows and the
+ * target array of the CSR snapshot (no transposed copy is needed). The
+ * teleport term (1 - damp) / N is added once per vertex, and the score of
+ * vertices without outgoing edges (dangling vertices) is spread evenly over
+ * all vertices, so the scores always sum up to 1 and no normalization is
+ * needed. Unlike PageRank, which adds (1 - damp) per incoming edge and loses
+ * the score of dangling vertices, this is the definition of Brin and Page.
+ * The scores can be stored as float instead of double, which halves the
+ * memory traffic of the scattered writes; the sums are still added up in
+ * double. The iteration stops when the squared difference from one iteration
+ * to the next is smaller than eps. Instead of iterating, the same scores can
+ * also be estimated from random walks (setMonteCarlo()).
+ */
+
+public class SparsePageRank {
+
+	private CSRGraph graph;
+	private double eps; // convergence criterion
+	private double damp; // damping constant
+	// store the scores as float instead of double
+	private boolean singlePrecision;
+	// scores of the last calculation (dense index)
+	private double[] rank;
+	// number of iterations of the last calculation
+	private int iterations;
+	// number of random walks started at each vertex for the Monte Carlo 
+	// estimate (0 = iterate until convergence), the seed of the random 
+	// numbers, the number of threads, and the estimated squared error of
+	// the last Monte Carlo run
+	private int walks;
+	private long seed;
+	private int threads;
+	private double errorEstimate;
+
+	public SparsePageRank(CSRGraph graph) {
+		// default constructor initializes field variables
+		this(graph, 1.0e-8, PageRank.DAMP);
+	}// end of constructor SparsePageRank()
+
+	public SparsePageRank(CSRGraph graph, double eps, double damp) {
+		// constructor with convergence criterion eps and damping constant damp
+		if (eps <= 0 || damp < 0 || damp >= 1) {
+			throw new IllegalArgumentException("eps must be positive and damp in [0, 1).");
+		}
+		this.graph = graph;
+		this.eps = eps;
+		this.damp = damp;
+		this.threads = 1;
+	}// end of constructor SparsePageRank() with eps and damp
+
+	public void setSinglePrecision(boolean singlePrecision) {
+		// store the scores as float (default double)
+		this.singlePrecision = singlePrecision;
+	}// end of method setSinglePrecision()
+
+	public void setMonteCarlo(int walks) {
+		// estimate the scores from walks random walks started at each vertex 
+		// instead of iterating until convergence (0 switches it off)
+		if (walks < 0) {
+			throw new IllegalArgumentException("The number of walks must not be negative.");
+		}
+		this.walks = walks;
+	}// end of method setMonteCarlo()
+
+	public void setSeed(long seed) {
+		// seed of the random numbers of the Monte Carlo estimate
+		this.seed = seed;
+	}// end of method setSeed()
+
+	public void setThreads(int threads) {
+		// number of threads running the random walks (default 1)
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1.");
+		}
+		this.threads = threads;
+	}// end of method setThreads()
+
+	public void run() {
+		// iterate until convergence (or estimate the scores by random walks)
+		if (walks > 0) {
+			runMonteCarlo();
+			return;
+		}
+		if (singlePrecision) {
+			runFloat();
+		}
+		else {
+			runDouble();
+		}
+		System.out.println("Page rank iterations " + iterations);
+	}// end of method run()
+
+	private void runDouble() {
+		// power iteration on double scores
+		int numVer = graph.getVertexCount();
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		double[] last = new double[numVer];
+		double[] next = new double[numVer];
+		Arrays.fill(last, 1.0/numVer);
+
+		iterations = 0;
+		double error = 100;
+		while (error>eps) {
+			iterations++;
+			Arrays.fill(next, 0.0);
+			// scatter the scores along the edges, collect the dangling score
+			double dangling = 0;
+			for (int u = 0; u < numVer; u++) {
+				int degree = offsets[u+1] - offsets[u];
+				if (degree == 0) {
+					dangling += last[u];
+					continue;
+				}
+				double share = damp * last[u] / degree;
+				for (int e = offsets[u]; e < offsets[u+1]; e++) {
+					next[targets[e]] += share;
+				}
+			}
+			// teleport and dangling score, the same for every vertex
+			double base = ((1.0-damp) + damp * dangling) / numVer;
+			double iterErr = 0;
+			for (int v = 0; v < numVer; v++) {
+				next[v] += base;
+				iterErr += (next[v] - last[v])*(next[v] - last[v]);
+			}
+			error = iterErr;
+			double[] tmp = last;
+			last = next;
+			next = tmp;
+		}
+		rank = last;
+	}// end of method runDouble()
+
+	private void runFloat() {
+		// power iteration on float scores, sums in double
+		int numVer = graph.getVertexCount();
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		float[] last = new float[numVer];
+		float[] next = new float[numVer];
+		Arrays.fill(last, 1.0f/numVer);
+
+		iterations = 0;
+		double error = 100;
+		while (error>eps) {
+			iterations++;
+			Arrays.fill(next, 0.0f);
+			double dangling = 0;
+			for (int u = 0; u < numVer; u++) {
+				int degree = offsets[u+1] - offsets[u];
+				if (degree == 0) {
+					dangling += last[u];
+					continue;
+				}
+				float share = (float) (damp * last[u] / degree);
+				for (int e = offsets[u]; e < offsets[u+1]; e++) {
+					next[targets[e]] += share;
+				}
+			}
+			float base = (float) (((1.0-damp) + damp * dangling) / numVer);
+			double iterErr = 0;
+			for (int v = 0; v < numVer; v++) {
+				next[v] += base;
+				iterErr += (double) (next[v] - last[v])*(next[v] - last[v]);
+			}
+			error = iterErr;
+			float[] tmp = last;
+			last = next;
+			next = tmp;
+		}
+		rank = new double[numVer];
+		for (int v = 0; v < numVer; v++) {
+			rank[v] = last[v];
+		}
+	}// end of method runFloat()
+
+	private void runMonteCarlo() {
+		// estimate the scores with random walks: walks walks start at every
+		// vertex, in each step a walk stops with probability 1 - damp or goes
+		// on to a random out-neighbor, and it also stops at vertices without
+		// outgoing edges. The expected number of visits of each vertex is then
+		// proportional to its score (also with dangling vertices, because 
+		// they spread their score evenly like the teleport), so the scores 
+		// are the fractions of all visits. The walks are split into batches,
+		// each batch is run by one task with its own random number generator
+		// (split from one seeded generator) and counts into its own stripe of
+		// counters, so the threads never share a counter. The single batches
+		// also give an estimate of the error: the variance of the mean of the
+		// batches, summed over all vertices (comparable to the squared 
+		// difference eps of the iteration). It only covers the random error,
+		// the estimate itself has no other error apart from a bias of the 
+		// order 1 / (number of visits) from dividing by the total visits.
+		int numVer = graph.getVertexCount();
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		int numBatches = Math.max(8, 4 * threads);
+		long[][] visits = new long[numBatches][];
+
+		SplittableRandom random = new SplittableRandom(seed);
+		List<Callable<long[]>> tasks = new ArrayList<Callable<long[]>>();
+		for (int b = 0; b < numBatches; b++) {
+			SplittableRandom batchRandom = random.split();
+			// every batch takes its share of the walks starting at each vertex
+			long numWalks = (long) walks * (b + 1) / numBatches - (long) walks * b / numBatches;
+			tasks.add(() -> {
+				long[] count = new long[numVer];
+				for (int v = 0; v < numVer; v++) {
+					for (long w = 0; w < numWalks; w++) {
+						int u = v;
+						while (true) {
+							count[u]++;
+							int degree = offsets[u+1] - offsets[u];
+							if (degree == 0 || batchRandom.nextDouble() >= damp) {
+								break;
+							}
+							u = targets[offsets[u] + batchRandom.nextInt(degree)];
+						}
+					}
+				}
+				return count;
+			});
+		}
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			List<Future<long[]>> results = pool.invokeAll(tasks);
+			for (int b = 0; b < numBatches; b++) {
+				visits[b] = results.get(b).get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Monte Carlo Page Rank failed.", e);
+		} finally {
+			pool.shutdown();
+		}
+
+		// the scores are the fractions of all visits, of all batches together
+		long[] batchTotal = new long[numBatches];
+		long total = 0;
+		for (int b = 0; b < numBatches; b++) {
+			for (int v = 0; v < numVer; v++) {
+				batchTotal[b] += visits[b][v];
+			}
+			total += batchTotal[b];
+		}
+		rank = new double[numVer];
+		double variance = 0;
+		for (int v = 0; v < numVer; v++) {
+			long sum = 0;
+			for (int b = 0; b < numBatches; b++) {
+				sum += visits[b][v];
+			}
+			rank[v] = total == 0 ? 0.0 : (double) sum / total;
+			for (int b = 0; b < numBatches; b++) {
+				double batchRank = batchTotal[b] == 0 ? 0.0 : (double) visits[b][v] / batchTotal[b];
+				variance += (batchRank - rank[v]) * (batchRank - rank[v]);
+			}
+		}
+		errorEstimate = variance / ((double) numBatches * (numBatches - 1));
+		iterations = 0;
+		System.out.println("Page rank random walks " + (long) walks * numVer + ", visits " + total);
+		System.out.println("Estimated error " + errorEstimate);
+	}// end of method runMonteCarlo()
+
+	public HashMap<Integer, Double> calculatePageRank() {
+		// run the iteration and map the scores to the original vertex IDs
+		run();
+		HashMap<Integer, Double> scores = new HashMap<Integer, Double>();
+		for (int v = 0; v < rank.length; v++) {
+			scores.put(graph.getId(v), rank[v]);
+		}
+		return scores;
+	}// end of method calculatePageRank()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public double[] getRanks() {
+		// the scores by dense index after run()
+		return rank;
+	}// end of method getRanks()
+
+	public double getErrorEstimate() {
+		// estimated squared error (random error only) of the scores of the 
+		// last Monte Carlo run
+		return errorEstimate;
+	}// end of method getErrorEstimate()
+
+	public int getIterations() {
+		// number of iterations of the last run
+		return iterations;
+	}// end of method getIterations()
+}
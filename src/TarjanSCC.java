@@ -1,98 +1,133 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.Stack;
 import java.util.List;
 
 /* This class represents the Tarja algorithm for finding strongly 
  * connected components in a graph. It runs in O(V + E).
- * This method is recursive and for very large graphs, hence very
- * deep recursion, it will require a lot of stack memory. 
- * If a stack overflow occurs, try increasing stack size or 
- * implement the algorithm with its own stack.
+ * The depth-first-search does not use recursion but keeps its own stack
+ * of vertices (and the position in each vertex's edges), so even very 
+ * large graphs with very deep searches run on the default thread stack.
  */ 
 
 public class TarjanSCC {
 	  
-	// set up a stack, and hash maps for the vertices and their edges
-	// as well as their low link values, and a hash set to keep track of
-	// visited nodes.
-	private Stack<Integer> stack;
-	private HashMap<Integer, HashSet<Integer>> vertices;
-	private HashMap<Integer, Integer> lowLinks;
-	private HashSet<Integer> visited;
+	// set up a stack, and arrays for the vertices and their edges (CSR)
+	// as well as their low link values (0 if not visited yet). All arrays 
+	// are indexed by the dense vertex index of the CSR.
+	private int[] stack;
+	private int stackSize;
+	private CSRGraph graph;
+	private int[] offsets;
+	private int[] targets;
+	private int[] lowLinks;
+	// the depth-first-search's own call stack, for each vertex on it the 
+	// next edge to follow, and whether it is still assumed to be a SCC root
+	private int[] callStack;
+	private int[] nextEdge;
+	private boolean[] isComponentRoot;
 	private List<HashSet<Integer>> connectedComponentList;
-	private int time = 0; // keep the order of node that's been visited
+	private int time = 1; // keep the order of node that's been visited
 	private int count = 0; // count how many SCC there are
 
 	public TarjanSCC(HashMap<Integer, HashSet<Integer>> vertices) {
+		// constructor for adjacency lists, they are converted to a CSR snapshot first
+		this(CSRGraph.fromAdjacency(vertices));
+	}// end of constructor TarjanSCC()
+	
+	public TarjanSCC(CSRGraph graph) {
 		// constructor initializes field variables
-		this.stack = new Stack<Integer>();
-		this.vertices = vertices;
-		this.lowLinks = new HashMap<Integer, Integer>();
-		this.visited = new HashSet<Integer>();
+		int numVerts = graph.getVertexCount();
+		this.graph = graph;
+		this.offsets = graph.getOffsets();
+		this.targets = graph.getTargets();
+		this.stack = new int[numVerts];
+		this.stackSize = 0;
+		this.lowLinks = new int[numVerts];
+		this.callStack = new int[numVerts];
+		this.nextEdge = new int[numVerts];
+		this.isComponentRoot = new boolean[numVerts];
 		this.connectedComponentList = new LinkedList<HashSet<Integer>>();
-	}// end of constructor TarjanSCC()
+	}// end of constructor TarjanSCC() with CSR graph
 	
 	public void run() {
-		// run the recursive algorithm for all vertices that are not yet visited
-		for(int vertex : this.vertices.keySet())
-			if(!visited.contains(vertex))
+		// run the depth-first-search for all vertices that are not yet visited
+		for(int vertex = 0; vertex < lowLinks.length; vertex++)
+			if(lowLinks[vertex] == 0)
 				dfs(vertex);
 	}// end of method run()
 	
-	 private void dfs(int vertex) {
-		 // perform depth-first-search
+	 private void dfs(int start) {
+		 // perform depth-first-search from start
 		 
-		 // set low link value, add to visited, push on stack and assume is SCC root
-		 lowLinks.put(vertex, time++);
-		 visited.add(vertex);
-		 stack.push(vertex);
-		 boolean isComponentRoot = true;
+		 int depth = 0;
+		 visit(start);
+		 callStack[depth++] = start;
 		 
-		 // for all v neighbors of vertex
-		 for(int v : vertices.get(vertex)) {
-			 if(!visited.contains(v)) {
-				 // Recursively visit neighbor v
-				 dfs(v);
-			 }
+		 while(depth > 0) {
+			 int vertex = callStack[depth-1];
 			 
-			// if there is a back edge
-			 if(lowLinks.get(vertex) > lowLinks.get(v)) {
-				 lowLinks.put(vertex, lowLinks.get(v));
-				 // So vertex is not the root of a SCC
-				 isComponentRoot = false;
+			 // for all v neighbors of vertex
+			 if(nextEdge[vertex] < offsets[vertex+1]) {
+				 int v = targets[nextEdge[vertex]];
+				 if(lowLinks[v] == 0) {
+					 // visit neighbor v first, the edge is checked again 
+					 // when the search returns to vertex
+					 visit(v);
+					 callStack[depth++] = v;
+					 continue;
+				 }
+				 
+				 // if there is a back edge
+				 if(lowLinks[vertex] > lowLinks[v]) {
+					 lowLinks[vertex] = lowLinks[v];
+					 // So vertex is not the root of a SCC
+					 isComponentRoot[vertex] = false;
+				 }
+				 nextEdge[vertex]++;
+				 continue;
 			 }
-		 }
-		 
-		// only for the root SCC node
-		 if(isComponentRoot) {
-			 count++;
-			 // vertex is the root of a SCC
 			 
-			 // make a list that will contains the nodes of this SCC
-			 HashSet<Integer> component = new HashSet<Integer>();
+			 // all neighbors are done, return to the previous vertex
+			 depth--;
 			 
-			 while(true) {
-				 // pop up next vertex from stack
-				 int actualVertex = stack.pop();
-				 // So the vertex actualVertex is in SCC number #count
-				 // add it to the list
-				 component.add(actualVertex);
-				 // and set its low link to infinity
-				 lowLinks.put(actualVertex, Integer.MAX_VALUE);
+			 // only for the root SCC node
+			 if(isComponentRoot[vertex]) {
+				 count++;
+				 // vertex is the root of a SCC
+				 
+				 // make a list that will contains the nodes of this SCC
+				 HashSet<Integer> component = new HashSet<Integer>();
 				 
-				 // Run until it hits the root SCC node
-				 if(actualVertex==vertex) {
-					 break;
+				 while(true) {
+					 // pop up next vertex from stack
+					 int actualVertex = stack[--stackSize];
+					 // So the vertex actualVertex is in SCC number #count
+					 // add it to the list (with its original ID)
+					 component.add(graph.getId(actualVertex));
+					 // and set its low link to infinity
+					 lowLinks[actualVertex] = Integer.MAX_VALUE;
+					 
+					 // Run until it hits the root SCC node
+					 if(actualVertex==vertex) {
+						 break;
+					 }
 				 }
+				 
+				 // add the list of SCC nodes to the list of SCC lists
+				 connectedComponentList.add(component);
 			 }
-			 
-			 // add the list of SCC nodes to the list of SCC lists
-			 connectedComponentList.add(component);
 		 }
 	 }// end of method dfs()
 	 
+	 private void visit(int vertex) {
+		 // set low link value, push on stack and assume is SCC root
+		 lowLinks[vertex] = time++;
+		 stack[stackSize++] = vertex;
+		 nextEdge[vertex] = offsets[vertex];
+		 isComponentRoot[vertex] = true;
+	 }// end of method visit()
+	 
 	 
 	 /*
 	  *  Getter methods below
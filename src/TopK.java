@@ -0,0 +1,109 @@
+/*
+ * This class keeps the k highest scores (and the index they belong to, e.g.
+ * the dense index of a vertex) out of a stream of scores in a bounded binary
+ * min-heap of primitive arrays. The lowest of the kept scores is at the root,
+ * so each new score is either dropped right away or replaces the root, in
+ * O(log k). Finding the k most important vertices of a graph with V vertices
+ * takes O(V log k) time and O(k) memory, without a map of all scores.
+ */
+public class TopK {
+
+	private int k;
+	// kept indices and scores in heap order (lowest score at position 0)
+	private int[] indices;
+	private double[] scores;
+	private int size;
+
+	public TopK(int k) {
+		// constructor initializes field variables
+		if (k < 0) {
+			throw new IllegalArgumentException("k must not be negative.");
+		}
+		this.k = k;
+		this.indices = new int[k];
+		this.scores = new double[k];
+		this.size = 0;
+	}// end of constructor TopK()
+
+	public void offer(int index, double score) {
+		// keep index if its score is among the k highest so far
+		if (size < k) {
+			// move up from the new leaf
+			int i = size++;
+			while (i > 0 && scores[(i-1)/2] > score) {
+				indices[i] = indices[(i-1)/2];
+				scores[i] = scores[(i-1)/2];
+				i = (i-1)/2;
+			}
+			indices[i] = index;
+			scores[i] = score;
+		}
+		else if (k > 0 && score > scores[0]) {
+			replaceRoot(indices, scores, size, index, score);
+		}
+	}// end of method offer()
+
+	public void offerAll(double[] values) {
+		// offer the score of every index of values
+		for (int i = 0; i < values.length; i++) {
+			offer(i, values[i]);
+		}
+	}// end of method offerAll()
+
+	private static void replaceRoot(int[] indices, double[] scores, int size, int index, double score) {
+		// put index at the root and move it down to its place
+		int i = 0;
+		while (2 * i + 1 < size) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && scores[child+1] < scores[child]) {
+				child++;
+			}
+			if (scores[child] >= score) {
+				break;
+			}
+			indices[i] = indices[child];
+			scores[i] = scores[child];
+			i = child;
+		}
+		indices[i] = index;
+		scores[i] = score;
+	}// end of method replaceRoot()
+
+	public int[] getIndices() {
+		// the kept indices, highest score first
+		int[] result = new int[size];
+		sort(result, null);
+		return result;
+	}// end of method getIndices()
+
+	public double[] getScores() {
+		// the kept scores, highest first
+		double[] result = new double[size];
+		sort(null, result);
+		return result;
+	}// end of method getScores()
+
+	private void sort(int[] sortedIndices, double[] sortedScores) {
+		// take the lowest score off a copy of the heap until it is empty,
+		// filling the results from the back
+		int[] heapIndices = indices.clone();
+		double[] heapScores = scores.clone();
+		for (int n = size; n > 0; n--) {
+			if (sortedIndices != null) {
+				sortedIndices[n-1] = heapIndices[0];
+			}
+			if (sortedScores != null) {
+				sortedScores[n-1] = heapScores[0];
+			}
+			replaceRoot(heapIndices, heapScores, n-1, heapIndices[n-1], heapScores[n-1]);
+		}
+	}// end of method sort()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public int size() {
+		return size;
+	}// end of method size()
+}
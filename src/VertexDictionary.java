@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+/*
+ * This class assigns dense internal IDs 0..V-1 to (possibly large and sparse)
+ * external vertex IDs in the order in which they are added. The reverse
+ * lookup (dense -> external) is a plain int array, the forward lookup
+ * (external -> dense) an open-addressing hash table with linear probing that
+ * stores the dense ID in its slots, so no object is created per vertex.
+ * Algorithms can then use arrays indexed by the dense IDs and only translate
+ * back to the external IDs for their results.
+ */
+public class VertexDictionary {
+
+	// marks an empty slot of the hash table
+	private static final int EMPTY = -1;
+
+	// external ID of each dense ID, valid up to size
+	private int[] ids;
+	private int size;
+	// dense ID stored in each slot (or EMPTY), the length is a power of two
+	// and at least twice the number of IDs
+	private int[] table;
+	private int mask;
+
+	public VertexDictionary() {
+		this(16);
+	}// end of constructor VertexDictionary()
+
+	public VertexDictionary(int capacity) {
+		// constructor initializes field variables for about capacity IDs
+		ids = new int[Math.max(capacity, 16)];
+		size = 0;
+		table = newTable(ids.length);
+		mask = table.length - 1;
+	}// end of constructor VertexDictionary() with capacity
+
+	public VertexDictionary(int[] ids) {
+		// create the dictionary in which ids[v] has the dense ID v
+		this(ids.length);
+		for (int v = 0; v < ids.length; v++) {
+			if (add(ids[v]) != v) {
+				throw new IllegalArgumentException("Duplicate vertex ID " + ids[v] + ".");
+			}
+		}
+	}// end of constructor VertexDictionary() with IDs
+
+	public int add(int id) {
+		// return the dense ID of the external ID id, assigning the next one if
+		// id is not in the dictionary yet
+		int slot = hash(id) & mask;
+		while (table[slot] != EMPTY) {
+			if (ids[table[slot]] == id) {
+				return table[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, Math.max(16, 2 * size));
+		}
+		int dense = size++;
+		ids[dense] = id;
+		table[slot] = dense;
+		if (2 * size > table.length) {
+			rehash();
+		}
+		return dense;
+	}// end of method add()
+
+	public int get(int id) {
+		// return the dense ID of the external ID id, or -1 if it is not in the dictionary
+		int slot = hash(id) & mask;
+		while (table[slot] != EMPTY) {
+			if (ids[table[slot]] == id) {
+				return table[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}// end of method get()
+
+	public boolean contains(int id) {
+		return get(id) >= 0;
+	}// end of method contains()
+
+	public VertexDictionary copy() {
+		// an independent copy with the same dense IDs
+		VertexDictionary copy = new VertexDictionary(0);
+		copy.ids = Arrays.copyOf(ids, size);
+		copy.size = size;
+		copy.table = table.clone();
+		copy.mask = mask;
+		return copy;
+	}// end of method copy()
+
+	private void rehash() {
+		// double the table and insert all dense IDs again
+		table = newTable(2 * size);
+		mask = table.length - 1;
+		for (int dense = 0; dense < size; dense++) {
+			int slot = hash(ids[dense]) & mask;
+			while (table[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = dense;
+		}
+	}// end of method rehash()
+
+	private static int[] newTable(int capacity) {
+		// empty table with a power of two length of at least 2 * capacity
+		int length = 32;
+		while (length < 2 * capacity) {
+			length <<= 1;
+		}
+		int[] table = new int[length];
+		Arrays.fill(table, EMPTY);
+		return table;
+	}// end of method newTable()
+
+	private static int hash(int id) {
+		// spread the bits of id, consecutive IDs would otherwise fill
+		// consecutive slots and build long probe sequences
+		int h = id * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}// end of method hash()
+
+	/*
+	 * Getter methods below
+	 */
+
+	public int size() {
+		return size;
+	}// end of method size()
+
+	public int getId(int dense) {
+		// external ID of the dense ID dense (0 <= dense < size())
+		return ids[dense];
+	}// end of method getId()
+
+	public int[] getIds() {
+		// the external IDs of all dense IDs (length size()), must not be changed
+		if (ids.length != size) {
+			ids = Arrays.copyOf(ids, size);
+		}
+		return ids;
+	}// end of method getIds()
+}